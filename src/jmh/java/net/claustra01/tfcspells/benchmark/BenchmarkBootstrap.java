@@ -0,0 +1,75 @@
+package net.claustra01.tfcspells.benchmark;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.IntStream;
+import net.claustra01.tfcspells.TfcSpells;
+import net.minecraft.server.MinecraftServer;
+import net.neoforged.bus.api.SubscribeEvent;
+import net.neoforged.fml.common.EventBusSubscriber;
+import net.neoforged.neoforge.event.server.ServerStartedEvent;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the benchmarks once a dedicated server (with TFC and Iron's loaded) has started, then stops the server.
+ *
+ * <p>The harness is selected with the {@code tfcspells.bench} system property (see the {@code jmh},
+ * {@code threadScaling} and {@code replayTrace} runs in {@code build.gradle}); without it this does nothing. JMH runs
+ * in-process ({@code forks = 0}) because the block registries only exist inside the game.</p>
+ */
+@EventBusSubscriber(modid = TfcSpells.MOD_ID)
+public final class BenchmarkBootstrap {
+    private static final String BENCH_PROPERTY = "tfcspells.bench";
+    private static final Path OUTPUT_DIR = Path.of("jmh");
+
+    private BenchmarkBootstrap() {}
+
+    @SubscribeEvent
+    public static void onServerStarted(ServerStartedEvent event) {
+        String bench = System.getProperty(BENCH_PROPERTY);
+        if (bench == null || bench.isEmpty()) {
+            return;
+        }
+
+        MinecraftServer server = event.getServer();
+        TemplateCorpus.install(TemplateCorpus.load(server, ProcessorBenchmark.SURFACE_Y));
+
+        // Off the server thread: the server keeps ticking while we measure, and halts when we're done.
+        Thread thread = new Thread(() -> {
+            try {
+                Files.createDirectories(OUTPUT_DIR);
+                switch (bench) {
+                    case "jmh" -> runJmh();
+                    case "scaling" -> new ThreadScalingHarness(TemplateCorpus.get()).run();
+                    case "replay" -> new TraceReplayHarness(server).run();
+                    default -> TfcSpells.LOGGER.error("Unknown benchmark '{}'", bench);
+                }
+            } catch (Exception e) {
+                TfcSpells.LOGGER.error("Benchmark '{}' failed", bench, e);
+            } finally {
+                server.halt(false);
+            }
+        }, "tfcspells-bench");
+        thread.setContextClassLoader(BenchmarkBootstrap.class.getClassLoader());
+        thread.start();
+    }
+
+    private static void runJmh() throws Exception {
+        int[] threadCounts = IntStream.of(1, Runtime.getRuntime().availableProcessors()).distinct().toArray();
+        for (int threads : threadCounts) {
+            Options options = new OptionsBuilder()
+                    .include(ProcessorBenchmark.class.getName())
+                    .forks(0)
+                    .threads(threads)
+                    .addProfiler(GCProfiler.class)
+                    .resultFormat(ResultFormatType.JSON)
+                    .result(OUTPUT_DIR.resolve("processor-t" + threads + ".json").toString())
+                    .build();
+            new Runner(options).run();
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package net.claustra01.tfcspells.benchmark;
+
+import javax.annotation.Nullable;
+import net.claustra01.tfcspells.world.TfcGround;
+import net.minecraft.core.BlockPos;
+import net.minecraft.world.level.BlockGetter;
+import net.minecraft.world.level.block.Blocks;
+import net.minecraft.world.level.block.entity.BlockEntity;
+import net.minecraft.world.level.block.state.BlockState;
+import net.minecraft.world.level.material.FluidState;
+
+/**
+ * A {@link BlockGetter} made of the same column everywhere: air above the surface, a few layers of TFC soil, then raw
+ * TFC rock down to the bottom of the world.
+ *
+ * <p>The processor's context probes only read block states straight down from the placement origin, so this stands in
+ * for a generated TFC world without a loaded level (and without going through the server thread for chunk access).</p>
+ */
+final class ColumnBlockGetter implements BlockGetter {
+    private static final int MIN_Y = -64;
+    private static final int HEIGHT = 384;
+
+    private final int surfaceY;
+    private final BlockState soil;
+    private final BlockState rock;
+
+    private ColumnBlockGetter(int surfaceY, BlockState soil, BlockState rock) {
+        this.surfaceY = surfaceY;
+        this.soil = soil;
+        this.rock = rock;
+    }
+
+    /** {@link TfcGround}'s default loam over granite, with the rock running down to the bottom of the world. */
+    static ColumnBlockGetter tfc(int surfaceY) {
+        return new ColumnBlockGetter(surfaceY, TfcGround.soil(TfcGround.SOIL), TfcGround.rock(TfcGround.ROCK));
+    }
+
+    @Override
+    public @Nullable BlockEntity getBlockEntity(BlockPos pos) {
+        return null;
+    }
+
+    @Override
+    public BlockState getBlockState(BlockPos pos) {
+        int y = pos.getY();
+        if (y >= surfaceY || y < MIN_Y) {
+            return Blocks.AIR.defaultBlockState();
+        }
+        if (y >= surfaceY - TfcGround.SOIL_DEPTH) {
+            return soil;
+        }
+        return rock;
+    }
+
+    @Override
+    public FluidState getFluidState(BlockPos pos) {
+        return getBlockState(pos).getFluidState();
+    }
+
+    @Override
+    public int getHeight() {
+        return HEIGHT;
+    }
+
+    @Override
+    public int getMinBuildHeight() {
+        return MIN_Y;
+    }
+}
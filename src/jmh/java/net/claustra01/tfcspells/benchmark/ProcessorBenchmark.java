@@ -0,0 +1,105 @@
+package net.claustra01.tfcspells.benchmark;
+
+import java.util.concurrent.TimeUnit;
+import javax.annotation.Nullable;
+import net.claustra01.tfcspells.world.processor.TfcBlockReplacementProcessor;
+import net.claustra01.tfcspells.world.processor.TfcBlockReplacementProcessor.ReplacementScope;
+import net.minecraft.world.level.levelgen.structure.templatesystem.StructurePlaceSettings;
+import net.minecraft.world.level.levelgen.structure.templatesystem.StructureTemplate;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Per-block and per-entity cost of {@link TfcBlockReplacementProcessor} over the Iron's template corpus.
+ *
+ * <p>Each benchmark op handles one template block (or entity), walking the corpus in order. With {@code cache=cold}
+ * the calling thread's context caches are dropped at the start of every template, so the first block of each
+ * placement pays for rock/soil probing and the wood hint; with {@code cache=warm} they survive across passes.</p>
+ *
+ * <p>The fast-path mapping cache is shared by all threads, so it is only cleared once per iteration, before the
+ * benchmark threads start; clearing it per template would wipe it under the other threads.</p>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class ProcessorBenchmark {
+    static final int SURFACE_Y = 64;
+
+    private static final TfcBlockReplacementProcessor PROCESSOR = TfcBlockReplacementProcessor.INSTANCE;
+
+    @State(Scope.Benchmark)
+    public static class CorpusState {
+        @Param({"FULL", "UTILITY_ONLY"})
+        public ReplacementScope scope;
+
+        @Param({"cold", "warm"})
+        public String cache;
+
+        TemplateCorpus corpus;
+        ColumnBlockGetter level;
+        StructurePlaceSettings settings;
+        boolean cold;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            corpus = TemplateCorpus.get();
+            level = ColumnBlockGetter.tfc(SURFACE_Y);
+            settings = new StructurePlaceSettings();
+            cold = "cold".equals(cache);
+        }
+
+        // Benchmark-scoped, so JMH runs this on one thread while the others wait.
+        @Setup(Level.Iteration)
+        public void clearSharedCaches() {
+            TfcBlockReplacementProcessor.clearCaches();
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        int block;
+        int entity;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            TfcBlockReplacementProcessor.clearContextCaches();
+            block = 0;
+            entity = 0;
+        }
+    }
+
+    @Benchmark
+    public @Nullable StructureTemplate.StructureBlockInfo process(CorpusState state, Cursor cursor) {
+        TemplateCorpus.BlockSample[] samples = state.corpus.blocks();
+        TemplateCorpus.BlockSample sample = samples[cursor.block];
+        cursor.block = cursor.block + 1 == samples.length ? 0 : cursor.block + 1;
+
+        if (state.cold && sample.first()) {
+            TfcBlockReplacementProcessor.clearContextCaches();
+        }
+        TemplateCorpus.Entry entry = sample.entry();
+        return PROCESSOR.processInScope(
+                state.level, state.scope, entry.offset(), sample.info(), state.settings, entry.template());
+    }
+
+    @Benchmark
+    public @Nullable StructureTemplate.StructureEntityInfo processEntity(CorpusState state, Cursor cursor) {
+        TemplateCorpus.EntitySample[] samples = state.corpus.entities();
+        if (samples.length == 0) {
+            return null;
+        }
+        TemplateCorpus.EntitySample sample = samples[cursor.entity];
+        cursor.entity = cursor.entity + 1 == samples.length ? 0 : cursor.entity + 1;
+        return TfcBlockReplacementProcessor.processEntityInfo(sample.info());
+    }
+}
@@ -0,0 +1,102 @@
+package net.claustra01.tfcspells.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import net.claustra01.tfcspells.access.StructureTemplateEntitiesAccess;
+import net.claustra01.tfcspells.access.StructureTemplatePalettesAccess;
+import net.claustra01.tfcspells.world.IronsStructureTemplates;
+import net.minecraft.core.BlockPos;
+import net.minecraft.resources.ResourceLocation;
+import net.minecraft.server.MinecraftServer;
+import net.minecraft.world.level.levelgen.structure.templatesystem.StructureTemplate;
+import net.minecraft.world.level.levelgen.structure.templatesystem.StructureTemplateManager;
+
+/**
+ * Every Iron's Spellbooks structure template shipped in the mod jar, flattened into block and entity samples.
+ *
+ * <p>Templates are loaded through {@link StructureTemplateManager#getOrCreate} so they carry the same template id the
+ * mixins attach in worldgen. Each template gets its own placement origin so per-origin caches behave as they would for
+ * distinct placements.</p>
+ */
+final class TemplateCorpus {
+    private static final int ORIGIN_SPACING = 256;
+
+    private static volatile TemplateCorpus installed;
+
+    private final List<Entry> entries;
+    private final BlockSample[] blocks;
+    private final EntitySample[] entities;
+
+    record Entry(ResourceLocation id, StructureTemplate template, BlockPos offset,
+            List<StructureTemplate.StructureBlockInfo> blocks,
+            List<StructureTemplate.StructureEntityInfo> entities) {}
+
+    /** One template block; {@code first} marks the first block of its template (i.e. the start of a placement). */
+    record BlockSample(Entry entry, StructureTemplate.StructureBlockInfo info, boolean first) {}
+
+    record EntitySample(Entry entry, StructureTemplate.StructureEntityInfo info) {}
+
+    private TemplateCorpus(List<Entry> entries) {
+        this.entries = List.copyOf(entries);
+
+        List<BlockSample> blocks = new ArrayList<>();
+        List<EntitySample> entities = new ArrayList<>();
+        for (Entry entry : entries) {
+            boolean first = true;
+            for (StructureTemplate.StructureBlockInfo info : entry.blocks()) {
+                blocks.add(new BlockSample(entry, info, first));
+                first = false;
+            }
+            for (StructureTemplate.StructureEntityInfo info : entry.entities()) {
+                entities.add(new EntitySample(entry, info));
+            }
+        }
+        this.blocks = blocks.toArray(BlockSample[]::new);
+        this.entities = entities.toArray(EntitySample[]::new);
+    }
+
+    static TemplateCorpus load(MinecraftServer server, int surfaceY) {
+        StructureTemplateManager manager = server.getStructureManager();
+        List<Entry> entries = new ArrayList<>();
+        for (ResourceLocation id : IronsStructureTemplates.list(server.getResourceManager())) {
+            StructureTemplate template = manager.getOrCreate(id);
+            List<StructureTemplate.Palette> palettes = ((StructureTemplatePalettesAccess) template).tfcspells$getPalettes();
+            if (palettes.isEmpty()) {
+                continue;
+            }
+
+            BlockPos offset = new BlockPos(entries.size() * ORIGIN_SPACING, surfaceY, 0);
+            entries.add(new Entry(
+                    id,
+                    template,
+                    offset,
+                    palettes.get(0).blocks(),
+                    ((StructureTemplateEntitiesAccess) template).tfcspells$getEntityInfoList()));
+        }
+        return new TemplateCorpus(entries);
+    }
+
+    static void install(TemplateCorpus corpus) {
+        installed = corpus;
+    }
+
+    static TemplateCorpus get() {
+        TemplateCorpus corpus = installed;
+        if (corpus == null) {
+            throw new IllegalStateException("Template corpus not loaded; benchmarks must run inside the server");
+        }
+        return corpus;
+    }
+
+    List<Entry> entries() {
+        return entries;
+    }
+
+    BlockSample[] blocks() {
+        return blocks;
+    }
+
+    EntitySample[] entities() {
+        return entities;
+    }
+}
@@ -0,0 +1,375 @@
+package net.claustra01.tfcspells.benchmark;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.sun.management.ThreadMXBean;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadInfo;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import javax.annotation.Nullable;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedThread;
+import jdk.jfr.consumer.RecordingFile;
+import net.claustra01.tfcspells.TfcSpells;
+import net.claustra01.tfcspells.TfcSpellsConfig;
+import net.claustra01.tfcspells.world.processor.ContextIndex;
+import net.claustra01.tfcspells.world.processor.ReplacementMetrics;
+import net.claustra01.tfcspells.world.processor.TfcBlockReplacementProcessor;
+import net.claustra01.tfcspells.world.processor.TfcBlockReplacementProcessor.ReplacementScope;
+import net.minecraft.core.BlockPos;
+import net.minecraft.resources.ResourceLocation;
+import net.minecraft.world.level.ChunkPos;
+import net.minecraft.world.level.Level;
+import net.minecraft.world.level.levelgen.structure.templatesystem.StructurePlaceSettings;
+import net.minecraft.world.level.levelgen.structure.templatesystem.StructureTemplate;
+
+/**
+ * Replays a fixed workload of template placements on 1, 2, 4, ... N worker threads.
+ *
+ * <p>Worldgen places a structure one chunk at a time, and neighbouring chunks of the same structure often land on
+ * different workers. The workload mirrors that: every template is split into per-chunk pieces which are shuffled with a
+ * fixed seed and pulled from a shared queue, so each thread that touches a structure has to resolve its context again.
+ * Every thread count starts with fresh threads (and so empty thread-local caches).</p>
+ *
+ * <p>By default the pieces are processed with no dimension and the config as loaded, so the only state the workers
+ * share is the metrics counters (plus the mapping cache if {@code mapping.fastPath} is on). With
+ * {@code -Dtfcspells.bench.sharedState=true} the harness places as if in the overworld and turns on the fast path and
+ * the context index for the run (restoring the config afterwards), so the workers also contend on the mapping cache
+ * and the index. Both are emptied before every thread count.</p>
+ *
+ * <p>For each thread count this reports throughput, context cache hit rate and what the shared structures cost the
+ * workers. The metrics counters, the mapping cache and the context index are {@code LongAdder}s and CAS-based maps,
+ * which rarely block, so monitor time alone would read zero whatever happens. Alongside the {@link ThreadMXBean}
+ * blocked/waited counters the harness records a JFR session per thread count (contended monitor entries, parks, GC
+ * pauses and safepoints) and reads per-worker CPU time and allocated bytes. CAS retries don't show up in any of these
+ * directly; they surface as CPU time that grows faster than the work, so compare {@code cpuMillis} and
+ * {@code allocatedBytes} per block across thread counts.</p>
+ */
+final class ThreadScalingHarness {
+    private static final Path RESULT_FILE = Path.of("jmh", "thread-scaling.json");
+    private static final String MAX_THREADS_PROPERTY = "tfcspells.bench.maxThreads";
+    private static final String SHARED_STATE_PROPERTY = "tfcspells.bench.sharedState";
+    private static final int PASSES = 5;
+    private static final long SEED = 42L;
+
+    private static final Gson GSON = new GsonBuilder().setPrettyPrinting().create();
+    private static final ThreadMXBean THREADS = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+    private static final String WORKER_PREFIX = "tfcspells-scaling-";
+    private static final String MONITOR_ENTER = "jdk.JavaMonitorEnter";
+    private static final String THREAD_PARK = "jdk.ThreadPark";
+    private static final String GC_PAUSE = "jdk.GCPhasePause";
+    private static final String SAFEPOINT = "jdk.SafepointBegin";
+    private static final String CONTENTION_NOTE = "CAS retries in LongAdder and ConcurrentHashMap are not observed "
+            + "directly; they show up as cpuMillis and allocatedBytes growing faster than blocks.";
+
+    private final List<Piece> pieces;
+    private final long blocksPerRun;
+    private final ColumnBlockGetter level = ColumnBlockGetter.tfc(ProcessorBenchmark.SURFACE_Y);
+    private final StructurePlaceSettings settings = new StructurePlaceSettings();
+    private final boolean sharedState = Boolean.getBoolean(SHARED_STATE_PROPERTY);
+    private final @Nullable ResourceLocation dimension = sharedState ? Level.OVERWORLD.location() : null;
+
+    /** The blocks of one template that fall into one chunk. */
+    private record Piece(TemplateCorpus.Entry entry, List<StructureTemplate.StructureBlockInfo> blocks) {}
+
+    /**
+     * What one worker thread has seen so far. Read once the start latch opens and again just before the thread exits,
+     * so the difference leaves out thread start-up and the wait on the latch.
+     */
+    private record WorkerStats(
+            long blockedCount, long blockedMillis, long waitedCount, long waitedMillis, long cpuNanos,
+            long allocatedBytes) {
+        /** Reads the calling thread's counters; they are only readable while it is alive. */
+        static WorkerStats current() {
+            long id = Thread.currentThread().threadId();
+            ThreadInfo info = THREADS.getThreadInfo(id);
+            return new WorkerStats(
+                    info.getBlockedCount(),
+                    Math.max(0, info.getBlockedTime()),
+                    info.getWaitedCount(),
+                    Math.max(0, info.getWaitedTime()),
+                    Math.max(0, THREADS.getCurrentThreadCpuTime()),
+                    Math.max(0, THREADS.getThreadAllocatedBytes(id)));
+        }
+
+        WorkerStats minus(WorkerStats baseline) {
+            return new WorkerStats(
+                    blockedCount - baseline.blockedCount,
+                    blockedMillis - baseline.blockedMillis,
+                    waitedCount - baseline.waitedCount,
+                    waitedMillis - baseline.waitedMillis,
+                    cpuNanos - baseline.cpuNanos,
+                    allocatedBytes - baseline.allocatedBytes);
+        }
+    }
+
+    /** Count and total duration of one JFR event type. */
+    private record EventTotal(long count, long nanos) {
+        static final EventTotal EMPTY = new EventTotal(0, 0);
+
+        EventTotal plus(Duration duration) {
+            return new EventTotal(count + 1, nanos + duration.toNanos());
+        }
+
+        long millis() {
+            return nanos / 1_000_000;
+        }
+    }
+
+    private record Result(int threads, long nanos, long blocks, ReplacementMetrics.Snapshot metrics,
+            long blockedCount, long blockedMillis, long waitedCount, long waitedMillis, long cpuNanos,
+            long allocatedBytes, Map<String, EventTotal> events) {
+        double blocksPerSecond() {
+            return nanos == 0 ? 0.0 : blocks * 1.0e9 / nanos;
+        }
+
+        EventTotal event(String name) {
+            return events.getOrDefault(name, EventTotal.EMPTY);
+        }
+    }
+
+    ThreadScalingHarness(TemplateCorpus corpus) {
+        List<Piece> pieces = new ArrayList<>();
+        for (TemplateCorpus.Entry entry : corpus.entries()) {
+            Map<ChunkPos, List<StructureTemplate.StructureBlockInfo>> byChunk = entry.blocks().stream()
+                    .collect(Collectors.groupingBy(info -> new ChunkPos(entry.offset().offset(info.pos()))));
+            byChunk.values().forEach(blocks -> pieces.add(new Piece(entry, blocks)));
+        }
+
+        List<Piece> workload = new ArrayList<>(pieces.size() * PASSES);
+        for (int pass = 0; pass < PASSES; pass++) {
+            workload.addAll(pieces);
+        }
+        Collections.shuffle(workload, new Random(SEED));
+        this.pieces = List.copyOf(workload);
+        this.blocksPerRun = workload.stream().mapToLong(piece -> piece.blocks().size()).sum();
+    }
+
+    void run() throws InterruptedException, IOException {
+        if (THREADS.isThreadContentionMonitoringSupported()) {
+            THREADS.setThreadContentionMonitoringEnabled(true);
+        }
+        if (THREADS.isThreadCpuTimeSupported()) {
+            THREADS.setThreadCpuTimeEnabled(true);
+        }
+        if (THREADS.isThreadAllocatedMemorySupported()) {
+            THREADS.setThreadAllocatedMemoryEnabled(true);
+        }
+
+        int maxThreads = Integer.getInteger(MAX_THREADS_PROPERTY, Runtime.getRuntime().availableProcessors());
+        List<Integer> threadCounts = new ArrayList<>();
+        for (int threads = 1; threads < maxThreads; threads *= 2) {
+            threadCounts.add(threads);
+        }
+        threadCounts.add(maxThreads);
+
+        boolean fastPath = TfcSpellsConfig.MAPPING_FAST_PATH.get();
+        boolean contextIndex = TfcSpellsConfig.CONTEXT_INDEX_ENABLED.get();
+        if (sharedState) {
+            TfcSpellsConfig.MAPPING_FAST_PATH.set(true);
+            TfcSpellsConfig.CONTEXT_INDEX_ENABLED.set(true);
+        }
+        List<Result> results = new ArrayList<>();
+        try {
+            // One untimed pass so the first measured thread count isn't paying for JIT warm-up.
+            runWith(1);
+            for (int threads : threadCounts) {
+                results.add(runWith(threads));
+            }
+        } finally {
+            TfcSpellsConfig.MAPPING_FAST_PATH.set(fastPath);
+            TfcSpellsConfig.CONTEXT_INDEX_ENABLED.set(contextIndex);
+        }
+
+        for (Result result : results) {
+            TfcSpells.LOGGER.info(
+                    "threads={} sharedState={} blocks/s={} cacheHitRate={} evictions={} blocked={}ms waited={}ms "
+                            + "cpu={}ms allocated={}B/block monitorEnter={}ms park={}ms gcPause={}ms",
+                    result.threads(),
+                    sharedState,
+                    String.format("%.0f", result.blocksPerSecond()),
+                    String.format("%.4f", result.metrics().cacheHitRate()),
+                    result.metrics().cacheEvictions(),
+                    result.blockedMillis(),
+                    result.waitedMillis(),
+                    result.cpuNanos() / 1_000_000,
+                    result.blocks() == 0 ? 0 : result.allocatedBytes() / result.blocks(),
+                    result.event(MONITOR_ENTER).millis(),
+                    result.event(THREAD_PARK).millis(),
+                    result.event(GC_PAUSE).millis());
+        }
+        TfcSpells.LOGGER.info(CONTENTION_NOTE);
+        write(results);
+    }
+
+    private Result runWith(int threadCount) throws InterruptedException, IOException {
+        // Every thread count fills the shared mapping cache and context index from scratch.
+        TfcBlockReplacementProcessor.clearCaches();
+        ContextIndex.ROCK.clear();
+        ContextIndex.SOIL.clear();
+
+        AtomicInteger next = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        ConcurrentLinkedQueue<WorkerStats> stats = new ConcurrentLinkedQueue<>();
+
+        List<Thread> workers = new ArrayList<>(threadCount);
+        for (int i = 0; i < threadCount; i++) {
+            Thread worker = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                WorkerStats baseline = WorkerStats.current();
+                for (int index = next.getAndIncrement(); index < pieces.size(); index = next.getAndIncrement()) {
+                    place(pieces.get(index));
+                }
+                stats.add(WorkerStats.current().minus(baseline));
+            }, WORKER_PREFIX + i);
+            workers.add(worker);
+            worker.start();
+        }
+
+        ReplacementMetrics.Snapshot before = ReplacementMetrics.total();
+        long nanos;
+        Map<String, EventTotal> events;
+        try (Recording recording = new Recording()) {
+            // Zero thresholds: a short contended enter or park per block adds up over the run.
+            recording.enable(MONITOR_ENTER).withThreshold(Duration.ZERO).withoutStackTrace();
+            recording.enable(THREAD_PARK).withThreshold(Duration.ZERO).withoutStackTrace();
+            recording.enable(GC_PAUSE).withoutStackTrace();
+            recording.enable(SAFEPOINT).withoutStackTrace();
+            recording.start();
+
+            // Workers are parked on the latch until now; that park isn't contention.
+            Instant workStart = Instant.now();
+            long startNanos = System.nanoTime();
+            start.countDown();
+            for (Thread worker : workers) {
+                worker.join();
+            }
+            nanos = System.nanoTime() - startNanos;
+
+            recording.stop();
+            events = summarize(recording, workStart);
+        }
+        ReplacementMetrics.Snapshot metrics = ReplacementMetrics.total().minus(before);
+
+        long blockedCount = 0;
+        long blockedMillis = 0;
+        long waitedCount = 0;
+        long waitedMillis = 0;
+        long cpuNanos = 0;
+        long allocatedBytes = 0;
+        for (WorkerStats worker : stats) {
+            blockedCount += worker.blockedCount();
+            blockedMillis += worker.blockedMillis();
+            waitedCount += worker.waitedCount();
+            waitedMillis += worker.waitedMillis();
+            cpuNanos += worker.cpuNanos();
+            allocatedBytes += worker.allocatedBytes();
+        }
+        return new Result(threadCount, nanos, blocksPerRun, metrics, blockedCount, blockedMillis, waitedCount,
+                waitedMillis, cpuNanos, allocatedBytes, events);
+    }
+
+    /**
+     * Totals the recorded events. Monitor and park events only count on worker threads, and only if they started once
+     * the workers were released; GC pauses and safepoints stop every thread and are counted whole.
+     */
+    private static Map<String, EventTotal> summarize(Recording recording, Instant workStart) throws IOException {
+        Path file = Files.createTempFile("tfcspells-scaling", ".jfr");
+        try {
+            recording.dump(file);
+            Map<String, EventTotal> totals = new HashMap<>();
+            for (RecordedEvent event : RecordingFile.readAllEvents(file)) {
+                String name = event.getEventType().getName();
+                if (name.equals(MONITOR_ENTER) || name.equals(THREAD_PARK)) {
+                    RecordedThread thread = event.getThread();
+                    if (thread == null || thread.getJavaName() == null
+                            || !thread.getJavaName().startsWith(WORKER_PREFIX)
+                            || event.getStartTime().isBefore(workStart)) {
+                        continue;
+                    }
+                }
+                totals.merge(name, EventTotal.EMPTY.plus(event.getDuration()),
+                        (a, b) -> new EventTotal(a.count() + b.count(), a.nanos() + b.nanos()));
+            }
+            return totals;
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    private void place(Piece piece) {
+        TemplateCorpus.Entry entry = piece.entry();
+        BlockPos offset = entry.offset();
+        for (StructureTemplate.StructureBlockInfo info : piece.blocks()) {
+            TfcBlockReplacementProcessor.INSTANCE.processInScope(
+                    level, ReplacementScope.FULL, dimension, offset, info, settings, entry.template());
+        }
+    }
+
+    private void write(List<Result> results) throws IOException {
+        double baseline = results.get(0).blocksPerSecond();
+        JsonArray rows = new JsonArray();
+        for (Result result : results) {
+            JsonObject row = new JsonObject();
+            row.addProperty("threads", result.threads());
+            row.addProperty("nanos", result.nanos());
+            row.addProperty("blocks", result.blocks());
+            row.addProperty("blocksPerSecond", result.blocksPerSecond());
+            row.addProperty("speedup", baseline == 0.0 ? 0.0 : result.blocksPerSecond() / baseline);
+            row.addProperty("cacheHits", result.metrics().cacheHits());
+            row.addProperty("cacheMisses", result.metrics().cacheMisses());
+            row.addProperty("cacheHitRate", result.metrics().cacheHitRate());
+            row.addProperty("cacheEvictions", result.metrics().cacheEvictions());
+            row.addProperty("probes", result.metrics().probes());
+            row.addProperty("meanProbeDepth", result.metrics().meanProbeDepth());
+            row.addProperty("blockedCount", result.blockedCount());
+            row.addProperty("blockedMillis", result.blockedMillis());
+            row.addProperty("waitedCount", result.waitedCount());
+            row.addProperty("waitedMillis", result.waitedMillis());
+            row.addProperty("cpuMillis", result.cpuNanos() / 1_000_000);
+            row.addProperty("allocatedBytes", result.allocatedBytes());
+            row.addProperty("allocatedBytesPerBlock",
+                    result.blocks() == 0 ? 0.0 : (double) result.allocatedBytes() / result.blocks());
+            addEvent(row, "monitorEnter", result.event(MONITOR_ENTER));
+            addEvent(row, "park", result.event(THREAD_PARK));
+            addEvent(row, "gcPause", result.event(GC_PAUSE));
+            addEvent(row, "safepoint", result.event(SAFEPOINT));
+            rows.add(row);
+        }
+
+        JsonObject root = new JsonObject();
+        root.addProperty("pieces", pieces.size());
+        root.addProperty("passes", PASSES);
+        root.addProperty("sharedState", sharedState);
+        root.addProperty("contentionNote", CONTENTION_NOTE);
+        root.add("results", rows);
+        Files.writeString(RESULT_FILE, GSON.toJson(root));
+    }
+
+    private static void addEvent(JsonObject row, String prefix, EventTotal total) {
+        row.addProperty(prefix + "Count", total.count());
+        row.addProperty(prefix + "Millis", total.millis());
+    }
+}
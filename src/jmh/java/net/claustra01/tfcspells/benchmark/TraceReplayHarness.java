@@ -0,0 +1,242 @@
+package net.claustra01.tfcspells.benchmark;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import javax.annotation.Nullable;
+import net.claustra01.tfcspells.TfcSpells;
+import net.claustra01.tfcspells.access.StructureTemplatePalettesAccess;
+import net.claustra01.tfcspells.trace.PlacementTrace;
+import net.claustra01.tfcspells.world.processor.ReplacementMetrics;
+import net.claustra01.tfcspells.world.processor.TfcBlockReplacementProcessor;
+import net.claustra01.tfcspells.world.processor.TfcBlockReplacementProcessor.ReplacementScope;
+import net.minecraft.core.BlockPos;
+import net.minecraft.core.registries.BuiltInRegistries;
+import net.minecraft.resources.ResourceLocation;
+import net.minecraft.server.MinecraftServer;
+import net.minecraft.world.level.BlockGetter;
+import net.minecraft.world.level.Level;
+import net.minecraft.world.level.block.Blocks;
+import net.minecraft.world.level.block.entity.BlockEntity;
+import net.minecraft.world.level.block.state.BlockState;
+import net.minecraft.world.level.levelgen.structure.templatesystem.StructurePlaceSettings;
+import net.minecraft.world.level.levelgen.structure.templatesystem.StructureTemplate;
+import net.minecraft.world.level.material.FluidState;
+
+/**
+ * Feeds a placement trace recorded on a live server (see {@code TraceRecorder}) back through the processor.
+ *
+ * <p>Every record is resolved up front (template, palette, recorded column), so the timed passes only run
+ * {@link TfcBlockReplacementProcessor#processInScope} over the exact placements the server saw, in the same order.
+ * The first pass also checks that the replayed rock/soil/wood context matches the recorded one; a mismatch means the
+ * replay isn't faithful (for example because the templates changed since the trace was taken).</p>
+ *
+ * <p>Replay always probes the recorded column and never consults the server's {@code ContextIndex}. Records whose
+ * context came from the index are replayed the same way but left out of the context check, since a probe of their own
+ * column may legitimately disagree with what a neighbouring origin found.</p>
+ */
+final class TraceReplayHarness {
+    private static final Path RESULT_FILE = Path.of("jmh", "replay.json");
+    private static final String FILE_PROPERTY = "tfcspells.replay.file";
+    private static final String PASSES_PROPERTY = "tfcspells.replay.passes";
+
+    private static final Gson GSON = new GsonBuilder().setPrettyPrinting().create();
+
+    private final MinecraftServer server;
+    private final Path file;
+    private final StructurePlaceSettings settings = new StructurePlaceSettings();
+
+    /** One recorded placement, ready to replay. */
+    private record Placement(
+            PlacementTrace.Entry entry,
+            StructureTemplate template,
+            List<StructureTemplate.StructureBlockInfo> blocks,
+            BlockPos offset,
+            ReplacementScope scope,
+            RecordedColumn level) {}
+
+    private record Pass(long nanos, long blocks, ReplacementMetrics.Snapshot metrics) {
+        double blocksPerSecond() {
+            return nanos == 0 ? 0.0 : blocks * 1.0e9 / nanos;
+        }
+    }
+
+    TraceReplayHarness(MinecraftServer server) {
+        this.server = server;
+        this.file = Path.of(Objects.requireNonNull(
+                System.getProperty(FILE_PROPERTY), "-D" + FILE_PROPERTY + " is required"));
+    }
+
+    void run() throws IOException {
+        List<Placement> placements = load();
+        int passes = Integer.getInteger(PASSES_PROPERTY, 5);
+
+        int contextMismatches = 0;
+        int indexed = (int) placements.stream().filter(placement -> placement.entry().indexed()).count();
+        List<Pass> results = new ArrayList<>();
+        for (int pass = 0; pass < passes; pass++) {
+            TfcBlockReplacementProcessor.clearCaches();
+            ReplacementMetrics.Snapshot before = ReplacementMetrics.total();
+            long blocks = 0;
+            long start = System.nanoTime();
+            for (Placement placement : placements) {
+                blocks += replay(placement);
+            }
+            long nanos = System.nanoTime() - start;
+            results.add(new Pass(nanos, blocks, ReplacementMetrics.total().minus(before)));
+
+            if (pass == 0) {
+                // Checked after the pass so the comparison isn't timed; the caches still hold every origin unless they
+                // overflowed, in which case evicted origins are skipped.
+                for (Placement placement : placements) {
+                    if (!placement.entry().indexed() && !contextMatches(placement)) {
+                        contextMismatches++;
+                    }
+                }
+            }
+            TfcSpells.LOGGER.info("replay pass {}: {} blocks in {} ms ({} blocks/s)",
+                    pass,
+                    blocks,
+                    nanos / 1_000_000,
+                    String.format("%.0f", results.get(pass).blocksPerSecond()));
+        }
+        if (contextMismatches > 0) {
+            TfcSpells.LOGGER.warn("{} of {} replayed placements resolved a different context than recorded",
+                    contextMismatches, placements.size() - indexed);
+        }
+        if (indexed > 0) {
+            TfcSpells.LOGGER.info("{} placements took their context from the index and weren't checked", indexed);
+        }
+        write(placements.size(), indexed, contextMismatches, results);
+    }
+
+    private List<Placement> load() throws IOException {
+        Map<String, Optional<StructureTemplate>> templates = new HashMap<>();
+        Map<String, BlockState> states = new HashMap<>();
+        List<Placement> placements = new ArrayList<>();
+        int skipped = 0;
+
+        try (PlacementTrace.Reader reader = new PlacementTrace.Reader(file)) {
+            for (PlacementTrace.Entry entry = reader.next(); entry != null; entry = reader.next()) {
+                StructureTemplate template = templates.computeIfAbsent(entry.templateId(),
+                        id -> server.getStructureManager().get(ResourceLocation.parse(id))).orElse(null);
+                if (template == null) {
+                    skipped++;
+                    continue;
+                }
+
+                BlockPos offset = new BlockPos(entry.x(), entry.y(), entry.z());
+                List<StructureTemplate.Palette> palettes =
+                        ((StructureTemplatePalettesAccess) template).tfcspells$getPalettes();
+                if (palettes.isEmpty()) {
+                    skipped++;
+                    continue;
+                }
+                StructureTemplate.Palette palette = entry.paletteIndex() >= 0 && entry.paletteIndex() < palettes.size()
+                        ? palettes.get(entry.paletteIndex())
+                        : settings.getRandomPalette(palettes, offset);
+
+                BlockState[] column = new BlockState[entry.column().size()];
+                for (int i = 0; i < column.length; i++) {
+                    column[i] = states.computeIfAbsent(entry.column().get(i),
+                            id -> BuiltInRegistries.BLOCK.get(ResourceLocation.parse(id)).defaultBlockState());
+                }
+
+                ReplacementScope scope = Level.OVERWORLD.location().toString().equals(entry.dimension())
+                        ? ReplacementScope.FULL
+                        : ReplacementScope.UTILITY_ONLY;
+                placements.add(new Placement(entry, template, palette.blocks(), offset, scope,
+                        new RecordedColumn(entry.y(), entry.minBuildHeight(), column)));
+            }
+        }
+
+        TfcSpells.LOGGER.info("Loaded {} placements from {} ({} skipped: template missing or empty)",
+                placements.size(), file, skipped);
+        return placements;
+    }
+
+    private long replay(Placement placement) {
+        for (StructureTemplate.StructureBlockInfo info : placement.blocks()) {
+            TfcBlockReplacementProcessor.INSTANCE.processInScope(
+                    placement.level(), placement.scope(), placement.offset(), info, settings, placement.template());
+        }
+        return placement.blocks().size();
+    }
+
+    private static boolean contextMatches(Placement placement) {
+        TfcBlockReplacementProcessor.ResolvedContext context =
+                TfcBlockReplacementProcessor.cachedContext(placement.offset());
+        PlacementTrace.Entry entry = placement.entry();
+        return matches(entry.rock(), context.rock())
+                && matches(entry.soil(), context.soil())
+                && matches(entry.wood(), context.wood());
+    }
+
+    /** Unresolved on either side (not needed, or evicted) isn't a mismatch. */
+    private static boolean matches(@Nullable String recorded, @Nullable String replayed) {
+        return recorded == null || replayed == null || recorded.equals(replayed);
+    }
+
+    private void write(int placements, int indexed, int contextMismatches, List<Pass> results) throws IOException {
+        JsonArray rows = new JsonArray();
+        for (int i = 0; i < results.size(); i++) {
+            Pass pass = results.get(i);
+            JsonObject row = new JsonObject();
+            row.addProperty("pass", i);
+            row.addProperty("nanos", pass.nanos());
+            row.addProperty("blocks", pass.blocks());
+            row.addProperty("blocksPerSecond", pass.blocksPerSecond());
+            row.addProperty("cacheHitRate", pass.metrics().cacheHitRate());
+            row.addProperty("probes", pass.metrics().probes());
+            row.addProperty("meanProbeDepth", pass.metrics().meanProbeDepth());
+            rows.add(row);
+        }
+
+        JsonObject root = new JsonObject();
+        root.addProperty("trace", file.toString());
+        root.addProperty("placements", placements);
+        root.addProperty("indexedPlacements", indexed);
+        root.addProperty("contextMismatches", contextMismatches);
+        root.add("passes", rows);
+        Files.writeString(RESULT_FILE, GSON.toJson(root));
+    }
+
+    /** The column recorded below one placement origin; every x/z sees the same column, everything else is air. */
+    private record RecordedColumn(int topY, int minBuildHeight, BlockState[] column) implements BlockGetter {
+        @Override
+        public BlockState getBlockState(BlockPos pos) {
+            int index = topY - pos.getY();
+            return index >= 0 && index < column.length ? column[index] : Blocks.AIR.defaultBlockState();
+        }
+
+        @Override
+        public FluidState getFluidState(BlockPos pos) {
+            return getBlockState(pos).getFluidState();
+        }
+
+        @Override
+        public @Nullable BlockEntity getBlockEntity(BlockPos pos) {
+            return null;
+        }
+
+        @Override
+        public int getHeight() {
+            return 384;
+        }
+
+        @Override
+        public int getMinBuildHeight() {
+            return minBuildHeight;
+        }
+    }
+}
@@ -4,15 +4,30 @@ import org.slf4j.Logger;
 
 import com.mojang.logging.LogUtils;
 
+import net.claustra01.tfcspells.command.TfcSpellsCommands;
+import net.claustra01.tfcspells.trace.TraceRecorder;
+import net.claustra01.tfcspells.world.processor.ContextIndex;
+import net.claustra01.tfcspells.world.processor.ReplacementMetrics;
 import net.neoforged.bus.api.IEventBus;
+import net.neoforged.fml.ModContainer;
 import net.neoforged.fml.common.Mod;
+import net.neoforged.fml.config.ModConfig;
+import net.neoforged.neoforge.common.NeoForge;
 
 @Mod(TfcSpells.MOD_ID)
 public final class TfcSpells {
     public static final String MOD_ID = "tfcspells";
     public static final Logger LOGGER = LogUtils.getLogger();
 
-    public TfcSpells(IEventBus modEventBus) {
+    public TfcSpells(IEventBus modEventBus, ModContainer modContainer) {
+        modContainer.registerConfig(ModConfig.Type.COMMON, TfcSpellsConfig.SPEC);
         ModStructureProcessors.register(modEventBus);
+        NeoForge.EVENT_BUS.addListener(TfcSpellsCommands::register);
+        NeoForge.EVENT_BUS.addListener(TfcSpellsCommands::onServerTick);
+        NeoForge.EVENT_BUS.addListener(TfcSpellsCommands::onServerStopping);
+        NeoForge.EVENT_BUS.addListener(TraceRecorder::onServerStarted);
+        NeoForge.EVENT_BUS.addListener(TraceRecorder::onServerStopping);
+        NeoForge.EVENT_BUS.addListener(ContextIndex::onServerStopping);
+        ReplacementMetrics.registerMBean();
     }
 }
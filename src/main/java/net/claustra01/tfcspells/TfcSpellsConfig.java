@@ -0,0 +1,60 @@
+package net.claustra01.tfcspells;
+
+import net.neoforged.neoforge.common.ModConfigSpec;
+
+/**
+ * Common config ({@code config/tfcspells-common.toml}). Everything here is off by default and meant for diagnosing
+ * worldgen cost on a live server.
+ */
+public final class TfcSpellsConfig {
+    public static final ModConfigSpec SPEC;
+
+    public static final ModConfigSpec.BooleanValue TRACE_ENABLED;
+    public static final ModConfigSpec.ConfigValue<String> TRACE_FILE;
+
+    public static final ModConfigSpec.BooleanValue MAPPING_FAST_PATH;
+    public static final ModConfigSpec.DoubleValue MAPPING_SHADOW_SAMPLE_RATE;
+
+    public static final ModConfigSpec.BooleanValue CONTEXT_INDEX_ENABLED;
+    public static final ModConfigSpec.IntValue CONTEXT_INDEX_TTL_SECONDS;
+
+    static {
+        ModConfigSpec.Builder builder = new ModConfigSpec.Builder();
+
+        builder.push("trace");
+        TRACE_ENABLED = builder
+                .comment("Record every Iron's template placement to a binary trace file for offline replay.")
+                .define("enabled", false);
+        TRACE_FILE = builder
+                .comment("Trace file, relative to the game directory. If it already exists, a timestamped file next to it",
+                        "is written instead.")
+                .define("file", "tfcspells-trace.bin.gz");
+        builder.pop();
+
+        builder.push("mapping");
+        MAPPING_FAST_PATH = builder
+                .comment("Memoize the vanilla -> TFC block state mapping per input state and context instead of",
+                        "rebuilding it from block ids for every block.")
+                .define("fastPath", false);
+        MAPPING_SHADOW_SAMPLE_RATE = builder
+                .comment("Fraction of fast-path results that are mapped again with the original string mapper",
+                        "and compared.",
+                        "Mismatches are counted per vanilla block (/tfcspells shadow); the first few are logged.")
+                .defineInRange("shadowSampleRate", 0.0, 0.0, 1.0);
+        builder.pop();
+
+        builder.push("contextIndex");
+        CONTEXT_INDEX_ENABLED = builder
+                .comment("Reuse rock and soil types probed by nearby placements instead of probing every new origin.",
+                        "Origins near a rock or soil border are still probed.")
+                .define("enabled", false);
+        CONTEXT_INDEX_TTL_SECONDS = builder
+                .comment("How long an indexed result may be reused.")
+                .defineInRange("ttlSeconds", 600, 1, 86400);
+        builder.pop();
+
+        SPEC = builder.build();
+    }
+
+    private TfcSpellsConfig() {}
+}
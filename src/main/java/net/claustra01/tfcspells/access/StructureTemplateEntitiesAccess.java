@@ -0,0 +1,13 @@
+package net.claustra01.tfcspells.access;
+
+import java.util.List;
+import net.minecraft.world.level.levelgen.structure.templatesystem.StructureTemplate;
+
+/**
+ * Mixin access interface used to read the entity list of a {@link StructureTemplate}.
+ *
+ * <p>This lets tooling feed template entities through {@code processEntity} without placing the template.</p>
+ */
+public interface StructureTemplateEntitiesAccess {
+    List<StructureTemplate.StructureEntityInfo> tfcspells$getEntityInfoList();
+}
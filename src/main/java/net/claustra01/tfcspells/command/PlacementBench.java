@@ -0,0 +1,266 @@
+package net.claustra01.tfcspells.command;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import javax.annotation.Nullable;
+import net.claustra01.tfcspells.access.StructureTemplatePalettesAccess;
+import net.claustra01.tfcspells.world.IronsStructureTemplates;
+import net.claustra01.tfcspells.world.TfcGround;
+import net.claustra01.tfcspells.world.processor.BenchPlacements;
+import net.claustra01.tfcspells.world.processor.ContextIndex;
+import net.claustra01.tfcspells.world.processor.PlacementPhases;
+import net.claustra01.tfcspells.world.processor.TfcBlockReplacementProcessor;
+import net.minecraft.core.BlockPos;
+import net.minecraft.core.Vec3i;
+import net.minecraft.resources.ResourceLocation;
+import net.minecraft.server.level.ServerLevel;
+import net.minecraft.util.RandomSource;
+import net.minecraft.world.entity.Entity;
+import net.minecraft.world.entity.player.Player;
+import net.minecraft.world.level.block.Block;
+import net.minecraft.world.level.levelgen.structure.BoundingBox;
+import net.minecraft.world.level.levelgen.structure.templatesystem.StructurePlaceSettings;
+import net.minecraft.world.level.levelgen.structure.templatesystem.StructureTemplate;
+import net.minecraft.world.phys.AABB;
+
+/**
+ * Backs {@code /tfcspells bench}: places Iron's templates repeatedly in a scratch area at the top of the world, above
+ * the caller, with and without {@link TfcBlockReplacementProcessor}.
+ *
+ * <p>The scratch area gets the {@link TfcGround} floor of loam over granite (as in the placement game tests) so context
+ * probes behave like they would on real ground. It must be empty before the run and is cleared afterwards. Per-thread
+ * context caches are dropped before every placement, so each one resolves its context like a fresh worldgen placement
+ * would. Placements are marked as {@link BenchPlacements}, so the {@link ContextIndex} is bypassed (every placement
+ * probes) and they stay out of {@code /tfcspells stats} and placement traces.</p>
+ *
+ * <p>Each template is placed {@code count} times with and {@code count} times without the processor, in pairs whose
+ * order alternates so neither leg always runs on a cache just warmed by the other. These timed placements run without
+ * a {@link PlacementPhases} recorder, whose laps would only slow down the "with" leg; the phase breakdown comes from
+ * another {@code count} untimed placements with the processor under the recorder.</p>
+ *
+ * <p>A run is spread over server ticks: {@link #tick} places as many templates as fit in a time budget and returns, so
+ * a long run never holds one tick past the watchdog. Placements are only marked (and recorded) inside {@link #tick},
+ * so other placements on the server thread between ticks are neither timed by the bench nor hidden from the
+ * metrics.</p>
+ */
+final class PlacementBench {
+    // A timed pair (one placement without the processor, one with) plus one recorded placement.
+    private static final int STEPS_PER_REPETITION = 3;
+
+    private final ServerLevel level;
+    private final List<Target> targets;
+    private final int count;
+    private final long[][] withoutNanos;
+    private final long[][] withNanos;
+    private @Nullable BoundingBox area;
+    private @Nullable BlockPos origin;
+    private @Nullable PlacementPhases phases;
+    // Next placement: target index * STEPS_PER_REPETITION * count + the step within that target, which is
+    // 2 * repetition + pair position for timed placements and 2 * count + repetition for recorded ones.
+    private int step;
+
+    private record Target(ResourceLocation id, StructureTemplate template, StructureTemplate untagged, int blocks) {}
+
+    /** Placement times for one mode, in nanoseconds. */
+    record Timings(long[] nanos, long blocks) {
+        long total() {
+            return Arrays.stream(nanos).sum();
+        }
+
+        long percentile(double p) {
+            long[] sorted = nanos.clone();
+            Arrays.sort(sorted);
+            int index = (int) Math.ceil(p * sorted.length) - 1;
+            return sorted[Math.max(0, Math.min(sorted.length - 1, index))];
+        }
+
+        double blocksPerSecond() {
+            long total = total();
+            return total == 0 ? 0.0 : blocks * 1.0e9 / total;
+        }
+    }
+
+    record TemplateResult(ResourceLocation id, Timings without, Timings with) {}
+
+    record Result(
+            BlockPos origin, Timings without, Timings with, PlacementPhases phases, List<TemplateResult> templates) {}
+
+    private PlacementBench(ServerLevel level, List<Target> targets, int count) {
+        this.level = level;
+        this.targets = targets;
+        this.count = count;
+        this.withoutNanos = new long[targets.size()][count];
+        this.withNanos = new long[targets.size()][count];
+    }
+
+    /**
+     * Loads the templates to bench; empty if there is nothing to place (not an Iron's template, or an empty one).
+     *
+     * @param id a single template, or null for every Iron's template
+     */
+    static Optional<PlacementBench> create(ServerLevel level, @Nullable ResourceLocation id, int count) {
+        List<ResourceLocation> ids = IronsStructureTemplates.list(level.getServer().getResourceManager());
+        if (id != null) {
+            ids = ids.contains(id) ? List.of(id) : List.of();
+        }
+        List<Target> targets = new ArrayList<>();
+        for (ResourceLocation templateId : ids) {
+            // The id mixin only tags templates handed out by getOrCreate, and without the id the processor isn't
+            // appended. The file is known to exist, so this doesn't cache an empty template under a bad id.
+            StructureTemplate template = level.getStructureManager().getOrCreate(templateId);
+            List<StructureTemplate.Palette> palettes =
+                    ((StructureTemplatePalettesAccess) template).tfcspells$getPalettes();
+            if (palettes.isEmpty()) {
+                continue;
+            }
+            // Without a random source set, the palette is seeded by position and doesn't disturb anything.
+            int blocks = new StructurePlaceSettings().getRandomPalette(palettes, BlockPos.ZERO).blocks().size();
+            targets.add(new Target(templateId, template, IronsStructureTemplates.untagged(template), blocks));
+        }
+        return targets.isEmpty() ? Optional.empty() : Optional.of(new PlacementBench(level, targets, count));
+    }
+
+    /**
+     * Returns the scratch area above {@code column}: templates are placed at its origin, on a floor below it.
+     */
+    BoundingBox scratchArea(BlockPos column) {
+        int sizeX = 1;
+        int sizeY = 1;
+        int sizeZ = 1;
+        for (Target target : targets) {
+            Vec3i size = target.template().getSize();
+            sizeX = Math.max(sizeX, size.getX());
+            sizeY = Math.max(sizeY, size.getY());
+            sizeZ = Math.max(sizeZ, size.getZ());
+        }
+        int top = level.getMaxBuildHeight() - 1;
+        int floor = top - sizeY + 1 - TfcGround.SOIL_DEPTH - TfcGround.ROCK_DEPTH;
+        return new BoundingBox(column.getX(), floor, column.getZ(), column.getX() + sizeX - 1, top,
+                column.getZ() + sizeZ - 1);
+    }
+
+    boolean isEmpty(BoundingBox area) {
+        for (BlockPos pos : BlockPos.betweenClosed(
+                area.minX(), area.minY(), area.minZ(), area.maxX(), area.maxY(), area.maxZ())) {
+            if (!level.getBlockState(pos).isAir()) {
+                return false;
+            }
+        }
+        return !hasEntities(area);
+    }
+
+    /** Total placements in the run: timed with and without the processor, and recorded. */
+    int placements() {
+        return targets.size() * STEPS_PER_REPETITION * count;
+    }
+
+    int placed() {
+        return step;
+    }
+
+    BoundingBox area() {
+        return Objects.requireNonNull(area, "not started");
+    }
+
+    /** Lays the floor in {@code area}, which must be {@link #isEmpty empty}; placements then run in {@link #tick}. */
+    void start(BoundingBox area) {
+        this.area = area;
+        int surfaceY = area.minY() + TfcGround.SOIL_DEPTH + TfcGround.ROCK_DEPTH;
+        this.origin = new BlockPos(area.minX(), surfaceY, area.minZ());
+        TfcGround.prepare(level, area, origin.getY());
+    }
+
+    /**
+     * Places templates until {@code budgetNanos} has passed or the run is complete. A placement in progress always
+     * finishes, so a tick can overshoot by one placement.
+     *
+     * @return whether every placement has run
+     */
+    boolean tick(long budgetNanos) {
+        BlockPos origin = Objects.requireNonNull(this.origin, "not started");
+        long deadline = System.nanoTime() + budgetNanos;
+        BenchPlacements.enter();
+        try {
+            while (step < placements() && System.nanoTime() - deadline < 0) {
+                int target = step / (STEPS_PER_REPETITION * count);
+                int within = step % (STEPS_PER_REPETITION * count);
+                Target t = targets.get(target);
+                if (within < 2 * count) {
+                    int repetition = within / 2;
+                    // Even repetitions place without the processor first, odd ones with it first.
+                    boolean withProcessor = (within % 2 == 1) != (repetition % 2 == 1);
+                    long nanos = place(withProcessor ? t.template() : t.untagged(), origin, repetition);
+                    (withProcessor ? withNanos : withoutNanos)[target][repetition] = nanos;
+                } else {
+                    record(t.template(), origin, within - 2 * count);
+                }
+                step++;
+            }
+        } finally {
+            BenchPlacements.exit();
+        }
+        return step >= placements();
+    }
+
+    /** Clears the scratch area and returns the timings; call once {@link #tick} has returned true. */
+    Result finish() {
+        TfcGround.clear(level, area());
+        List<TemplateResult> results = new ArrayList<>();
+        long blocks = 0;
+        for (int i = 0; i < targets.size(); i++) {
+            long targetBlocks = (long) targets.get(i).blocks() * count;
+            blocks += targetBlocks;
+            results.add(new TemplateResult(targets.get(i).id(),
+                    new Timings(withoutNanos[i], targetBlocks), new Timings(withNanos[i], targetBlocks)));
+        }
+        results.sort(Comparator.comparingLong((TemplateResult r) -> r.with().percentile(0.5)).reversed());
+        return new Result(Objects.requireNonNull(origin), new Timings(concat(withoutNanos), blocks),
+                new Timings(concat(withNanos), blocks), Objects.requireNonNull(phases), results);
+    }
+
+    /** Stops an unfinished run and clears the scratch area. */
+    void abort() {
+        if (area != null) {
+            TfcGround.clear(level, area);
+        }
+    }
+
+    private void record(StructureTemplate template, BlockPos origin, int repetition) {
+        if (phases == null) {
+            phases = PlacementPhases.start();
+        } else {
+            phases.resume();
+        }
+        try {
+            place(template, origin, repetition);
+        } finally {
+            PlacementPhases.stop();
+        }
+    }
+
+    private long place(StructureTemplate template, BlockPos origin, int repetition) {
+        StructurePlaceSettings settings = new StructurePlaceSettings();
+        BoundingBox box = template.getBoundingBox(settings, origin);
+        TfcBlockReplacementProcessor.clearContextCaches();
+        long start = System.nanoTime();
+        try {
+            template.placeInWorld(
+                    level, origin, origin, settings, RandomSource.create(repetition), Block.UPDATE_CLIENTS);
+            return System.nanoTime() - start;
+        } finally {
+            TfcGround.clear(level, box);
+        }
+    }
+
+    private boolean hasEntities(BoundingBox area) {
+        return !level.getEntitiesOfClass(Entity.class, AABB.of(area), e -> !(e instanceof Player)).isEmpty();
+    }
+
+    private static long[] concat(long[][] parts) {
+        return Arrays.stream(parts).flatMapToLong(Arrays::stream).toArray();
+    }
+}
@@ -0,0 +1,412 @@
+package net.claustra01.tfcspells.command;
+
+import com.mojang.brigadier.arguments.IntegerArgumentType;
+import com.mojang.brigadier.arguments.StringArgumentType;
+import com.mojang.brigadier.builder.ArgumentBuilder;
+import com.mojang.brigadier.builder.LiteralArgumentBuilder;
+import com.mojang.brigadier.context.CommandContext;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.Nullable;
+import net.claustra01.tfcspells.TfcSpells;
+import net.claustra01.tfcspells.TfcSpellsConfig;
+import net.claustra01.tfcspells.convert.TemplateBatchConverter;
+import net.claustra01.tfcspells.world.IronsStructureTemplates;
+import net.claustra01.tfcspells.world.processor.ContextIndex;
+import net.claustra01.tfcspells.world.processor.PlacementPhases;
+import net.claustra01.tfcspells.world.processor.ReplacementMetrics;
+import net.claustra01.tfcspells.world.processor.ShadowVerifier;
+import net.minecraft.commands.CommandSourceStack;
+import net.minecraft.commands.Commands;
+import net.minecraft.commands.SharedSuggestionProvider;
+import net.minecraft.commands.arguments.ResourceLocationArgument;
+import net.minecraft.core.BlockPos;
+import net.minecraft.network.chat.Component;
+import net.minecraft.resources.ResourceLocation;
+import net.minecraft.server.MinecraftServer;
+import net.minecraft.server.level.ServerLevel;
+import net.minecraft.world.level.levelgen.structure.BoundingBox;
+import net.neoforged.neoforge.event.RegisterCommandsEvent;
+import net.neoforged.neoforge.event.server.ServerStoppingEvent;
+import net.neoforged.neoforge.event.tick.ServerTickEvent;
+
+/**
+ * Operator commands under {@code /tfcspells}.
+ *
+ * <ul>
+ *   <li>{@code stats} prints {@link ReplacementMetrics} totals, per-dimension figures, the costliest templates and the
+ *       most frequent unmapped vanilla blocks (plus {@link ContextIndex} reuse when it's enabled);
+ *       {@code stats reset} zeroes them.</li>
+ *   <li>{@code shadow} prints the fast-path shadow verification results from {@link ShadowVerifier};
+ *       {@code shadow reset} zeroes them.</li>
+ *   <li>{@code convert "<input>" "<output>" <rock> <soil> <wood>} converts every {@code .nbt} template in a
+ *       directory or zip (paths inside the server directory) with {@link TemplateBatchConverter}; any context axis
+ *       may be {@code all}, up to {@link #MAX_CONVERT_CONTEXTS} contexts in total, and other names must be TFC
+ *       variants. It needs owner permission, runs in the background on all but one core and reports each file as it
+ *       finishes.</li>
+ *   <li>{@code bench <template|all> [count]} places Iron's templates {@code count} times each with and without the
+ *       processor in a scratch area above the caller (see {@link PlacementBench}) and reports p50/p99 placement time,
+ *       blocks per second and, from separate recorded placements, where the processor's time went. Placements are
+ *       spread over server ticks, one run at a time; {@code bench cancel} stops a run.</li>
+ * </ul>
+ */
+public final class TfcSpellsCommands {
+    private static final int TOP_ENTRIES = 10;
+    private static final int DEFAULT_BENCH_COUNT = 10;
+    private static final int MAX_BENCH_COUNT = 1000;
+    // Leaves most of the 50 ms tick for the rest of the server.
+    private static final long BENCH_TICK_BUDGET_NANOS = TimeUnit.MILLISECONDS.toNanos(20);
+    // "all all all" is about 1,600 contexts, i.e. that many output files per input template.
+    private static final int MAX_CONVERT_CONTEXTS = 64;
+
+    // Only touched on the server thread.
+    private static @Nullable RunningBench runningBench;
+
+    private record RunningBench(PlacementBench bench, CommandSourceStack source, int count) {}
+
+    private TfcSpellsCommands() {}
+
+    public static void register(RegisterCommandsEvent event) {
+        LiteralArgumentBuilder<CommandSourceStack> root = Commands.literal(TfcSpells.MOD_ID)
+                .requires(source -> source.hasPermission(Commands.LEVEL_GAMEMASTERS))
+                .then(Commands.literal("stats")
+                        .executes(ctx -> showStats(ctx.getSource()))
+                        .then(Commands.literal("reset").executes(ctx -> resetStats(ctx.getSource()))))
+                .then(Commands.literal("shadow")
+                        .executes(ctx -> showShadow(ctx.getSource()))
+                        .then(Commands.literal("reset").executes(ctx -> resetShadow(ctx.getSource()))))
+                // Reads and writes files on the host, so owners only (and never command blocks).
+                .then(Commands.literal("convert")
+                        .requires(source -> source.hasPermission(Commands.LEVEL_OWNERS))
+                        .then(convertArguments()))
+                .then(Commands.literal("bench")
+                        .then(Commands.literal("cancel").executes(ctx -> cancelBench(ctx.getSource())))
+                        .then(Commands.literal("all")
+                                .executes(ctx -> bench(ctx.getSource(), null, DEFAULT_BENCH_COUNT))
+                                .then(Commands.argument("count", IntegerArgumentType.integer(1, MAX_BENCH_COUNT))
+                                        .executes(ctx -> bench(ctx.getSource(), null,
+                                                IntegerArgumentType.getInteger(ctx, "count")))))
+                        .then(Commands.argument("template", ResourceLocationArgument.id())
+                                .suggests((ctx, builder) -> SharedSuggestionProvider.suggestResource(
+                                        IronsStructureTemplates.list(ctx.getSource().getServer().getResourceManager()),
+                                        builder))
+                                .executes(ctx -> bench(ctx.getSource(),
+                                        ResourceLocationArgument.getId(ctx, "template"), DEFAULT_BENCH_COUNT))
+                                .then(Commands.argument("count", IntegerArgumentType.integer(1, MAX_BENCH_COUNT))
+                                        .executes(ctx -> bench(ctx.getSource(),
+                                                ResourceLocationArgument.getId(ctx, "template"),
+                                                IntegerArgumentType.getInteger(ctx, "count"))))));
+        event.getDispatcher().register(root);
+    }
+
+    private static int showStats(CommandSourceStack source) {
+        ReplacementMetrics.Snapshot total = ReplacementMetrics.total();
+        send(source, "Blocks: %d seen, %d replaced; skipped %d air, %d non-minecraft, %d blackstone/deepslate, %d unmapped",
+                total.blocksSeen(),
+                total.blocksReplaced(),
+                total.skipped(ReplacementMetrics.Skip.AIR),
+                total.skipped(ReplacementMetrics.Skip.NON_MINECRAFT),
+                total.skipped(ReplacementMetrics.Skip.EXCLUDED_FAMILY),
+                total.skipped(ReplacementMetrics.Skip.UNMAPPED));
+        send(source, "Probes: %d (mean depth %.1f); cache: %d hits, %d misses (%.1f%%), %d evicted",
+                total.probes(),
+                total.meanProbeDepth(),
+                total.cacheHits(),
+                total.cacheMisses(),
+                total.cacheHitRate() * 100.0,
+                total.cacheEvictions());
+        send(source, "Time: process %.1f ms (%.0f ns/block), processEntity %.1f ms over %d entities (%d replaced)",
+                millis(total.processNanos()),
+                perBlock(total.processNanos(), total.blocksSeen()),
+                millis(total.processEntityNanos()),
+                total.entitiesSeen(),
+                total.entitiesReplaced());
+        if (TfcSpellsConfig.CONTEXT_INDEX_ENABLED.get()) {
+            sendIndexStats(source, "rock", ContextIndex.ROCK.stats());
+            sendIndexStats(source, "soil", ContextIndex.SOIL.stats());
+        }
+
+        for (Map.Entry<ResourceLocation, ReplacementMetrics.Snapshot> entry : ReplacementMetrics.byDimension().entrySet()) {
+            ReplacementMetrics.Snapshot dim = entry.getValue();
+            send(source, "  %s: %d seen, %d replaced, %.1f ms",
+                    entry.getKey(), dim.blocksSeen(), dim.blocksReplaced(), millis(dim.processNanos()));
+        }
+
+        send(source, "Costliest templates:");
+        ReplacementMetrics.byTemplate().entrySet().stream()
+                .sorted(Comparator.comparingLong(
+                        (Map.Entry<ResourceLocation, ReplacementMetrics.Snapshot> e) -> e.getValue().processNanos())
+                        .reversed())
+                .limit(TOP_ENTRIES)
+                .forEach(e -> send(source, "  %s: %.1f ms over %d blocks",
+                        e.getKey(), millis(e.getValue().processNanos()), e.getValue().blocksSeen()));
+
+        Map<String, Long> unmapped = ReplacementMetrics.unmappedBlocks();
+        if (!unmapped.isEmpty()) {
+            send(source, "Most frequent unmapped blocks (%d ids):", unmapped.size());
+            unmapped.entrySet().stream()
+                    .sorted(Map.Entry.<String, Long>comparingByValue().reversed())
+                    .limit(TOP_ENTRIES)
+                    .forEach(e -> send(source, "  minecraft:%s x%d", e.getKey(), e.getValue()));
+        }
+        return 1;
+    }
+
+    private static void sendIndexStats(CommandSourceStack source, String kind, ContextIndex.Stats stats) {
+        send(source, "Context index (%s): %d reused, %d probed in unknown cells, %d probed near borders; %d cells",
+                kind, stats.reused(), stats.unknown(), stats.border(), stats.cells());
+    }
+
+    private static int resetStats(CommandSourceStack source) {
+        ReplacementMetrics.reset();
+        ContextIndex.ROCK.resetStats();
+        ContextIndex.SOIL.resetStats();
+        send(source, "Replacement metrics reset");
+        return 1;
+    }
+
+    private static int showShadow(CommandSourceStack source) {
+        Map<ResourceLocation, Long> mismatches = ShadowVerifier.mismatches();
+        long mismatched = mismatches.values().stream().mapToLong(Long::longValue).sum();
+        send(source, "Shadow verification: fast path %s, sample rate %s; %d compared, %d mismatched",
+                TfcSpellsConfig.MAPPING_FAST_PATH.get() ? "on" : "off",
+                TfcSpellsConfig.MAPPING_SHADOW_SAMPLE_RATE.get(),
+                ShadowVerifier.compared(),
+                mismatched);
+        mismatches.entrySet().stream()
+                .sorted(Map.Entry.<ResourceLocation, Long>comparingByValue().reversed())
+                .limit(TOP_ENTRIES)
+                .forEach(e -> send(source, "  %s x%d", e.getKey(), e.getValue()));
+        return 1;
+    }
+
+    private static int resetShadow(CommandSourceStack source) {
+        ShadowVerifier.reset();
+        send(source, "Shadow verification counters reset");
+        return 1;
+    }
+
+    private static ArgumentBuilder<CommandSourceStack, ?> convertArguments() {
+        return Commands.argument("input", StringArgumentType.string())
+                .then(Commands.argument("output", StringArgumentType.string())
+                        .then(Commands.argument("rock", StringArgumentType.word())
+                                .then(Commands.argument("soil", StringArgumentType.word())
+                                        .then(Commands.argument("wood", StringArgumentType.word())
+                                                .executes(TfcSpellsCommands::convert)))));
+    }
+
+    private static int convert(CommandContext<CommandSourceStack> ctx) {
+        CommandSourceStack source = ctx.getSource();
+        MinecraftServer server = source.getServer();
+        Path serverDirectory = server.getServerDirectory().toAbsolutePath().normalize();
+        Path input = serverDirectory.resolve(StringArgumentType.getString(ctx, "input")).normalize();
+        Path output = serverDirectory.resolve(StringArgumentType.getString(ctx, "output")).normalize();
+        if (!input.startsWith(serverDirectory) || !output.startsWith(serverDirectory)) {
+            source.sendFailure(Component.literal("Input and output must be inside the server directory"));
+            return 0;
+        }
+        if (!Files.exists(input)) {
+            source.sendFailure(Component.literal("No such file or directory: " + input));
+            return 0;
+        }
+        try {
+            // Catches symlinks that lead out of the server directory.
+            if (!input.toRealPath().startsWith(serverDirectory.toRealPath())) {
+                source.sendFailure(Component.literal("Input must be inside the server directory"));
+                return 0;
+            }
+        } catch (IOException e) {
+            source.sendFailure(Component.literal("Can't read " + input + ": " + e));
+            return 0;
+        }
+        List<TemplateBatchConverter.Context> contexts;
+        try {
+            contexts = TemplateBatchConverter.contexts(
+                    StringArgumentType.getString(ctx, "rock"),
+                    StringArgumentType.getString(ctx, "soil"),
+                    StringArgumentType.getString(ctx, "wood"));
+        } catch (IllegalArgumentException e) {
+            source.sendFailure(Component.literal(e.getMessage()));
+            return 0;
+        }
+        if (contexts.size() > MAX_CONVERT_CONTEXTS) {
+            source.sendFailure(Component.literal(String.format(
+                    "%d contexts would write %d copies of every template; narrow the axes to at most %d contexts",
+                    contexts.size(), contexts.size(), MAX_CONVERT_CONTEXTS)));
+            return 0;
+        }
+        // Leave a core for the server thread, which keeps ticking while the conversion runs.
+        int threads = Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+        TemplateBatchConverter converter = new TemplateBatchConverter(input, output, contexts, threads);
+
+        send(source, "Converting %s to %s with %d context(s)", input, output, contexts.size());
+        Thread thread = new Thread(() -> {
+            Set<String> unmapped = ConcurrentHashMap.newKeySet();
+            long start = System.nanoTime();
+            try {
+                int files = converter.run(result -> {
+                    unmapped.addAll(result.unmapped());
+                    String detail;
+                    if (result.error() != null) {
+                        detail = "failed: " + result.error();
+                    } else {
+                        detail = String.format("%d blocks, %d replaced", result.blocks(), result.replaced());
+                        if (!result.unmapped().isEmpty()) {
+                            detail += ", unmapped " + String.join(" ", result.unmapped());
+                        }
+                    }
+                    String message = detail;
+                    server.execute(() -> send(source, "  %s: %.1f ms, %s",
+                            result.file(), millis(result.nanos()), message));
+                });
+                long nanos = System.nanoTime() - start;
+                server.execute(() -> {
+                    send(source, "Converted %d files in %.1f ms", files, millis(nanos));
+                    if (!unmapped.isEmpty()) {
+                        send(source, "Unmapped blocks (%d): %s",
+                                unmapped.size(), String.join(" ", new TreeSet<>(unmapped)));
+                    }
+                });
+            } catch (Exception e) {
+                TfcSpells.LOGGER.error("Template conversion of {} failed", input, e);
+                server.execute(() -> source.sendFailure(Component.literal("Conversion failed: " + e)));
+            }
+        }, "tfcspells-convert-main");
+        thread.setDaemon(true);
+        thread.start();
+        return 1;
+    }
+
+    private static int bench(CommandSourceStack source, @Nullable ResourceLocation id, int count) {
+        if (runningBench != null) {
+            source.sendFailure(Component.literal(String.format("A bench is already running (%d/%d placements); "
+                    + "use /tfcspells bench cancel to stop it", runningBench.bench().placed(),
+                    runningBench.bench().placements())));
+            return 0;
+        }
+        if (id != null && !IronsStructureTemplates.NAMESPACE.equals(id.getNamespace())) {
+            source.sendFailure(Component.literal(
+                    "Only " + IronsStructureTemplates.NAMESPACE + " templates can be benched: " + id));
+            return 0;
+        }
+        ServerLevel level = source.getLevel();
+        Optional<PlacementBench> bench = PlacementBench.create(level, id, count);
+        if (bench.isEmpty()) {
+            source.sendFailure(Component.literal(id != null
+                    ? "No such Iron's template, or it has no blocks: " + id
+                    : "No Iron's templates found"));
+            return 0;
+        }
+        BoundingBox area = bench.get().scratchArea(BlockPos.containing(source.getPosition()));
+        if (!bench.get().isEmpty(area)) {
+            source.sendFailure(Component.literal("Scratch area " + area + " isn't empty; move somewhere open"));
+            return 0;
+        }
+
+        bench.get().start(area);
+        runningBench = new RunningBench(bench.get(), source, count);
+        send(source, "Bench started: %d placements, about %d ms per tick; results follow when it finishes",
+                bench.get().placements(), TimeUnit.NANOSECONDS.toMillis(BENCH_TICK_BUDGET_NANOS));
+        return 1;
+    }
+
+    private static int cancelBench(CommandSourceStack source) {
+        RunningBench running = runningBench;
+        if (running == null) {
+            source.sendFailure(Component.literal("No bench is running"));
+            return 0;
+        }
+        runningBench = null;
+        running.bench().abort();
+        send(source, "Bench cancelled after %d/%d placements (area cleared)",
+                running.bench().placed(), running.bench().placements());
+        return 1;
+    }
+
+    /** Runs the pending bench placements that fit in this tick's budget, and reports once the run completes. */
+    public static void onServerTick(ServerTickEvent.Post event) {
+        RunningBench running = runningBench;
+        if (running == null) {
+            return;
+        }
+        PlacementBench.Result result;
+        try {
+            if (!running.bench().tick(BENCH_TICK_BUDGET_NANOS)) {
+                return;
+            }
+            result = running.bench().finish();
+        } catch (RuntimeException e) {
+            runningBench = null;
+            running.bench().abort();
+            TfcSpells.LOGGER.error("Placement bench failed", e);
+            running.source().sendFailure(Component.literal("Bench failed (area cleared): " + e));
+            return;
+        }
+        runningBench = null;
+        reportBench(running.source(), result, running.count());
+    }
+
+    public static void onServerStopping(ServerStoppingEvent event) {
+        RunningBench running = runningBench;
+        if (running != null) {
+            runningBench = null;
+            running.bench().abort();
+        }
+    }
+
+    private static void reportBench(CommandSourceStack source, PlacementBench.Result result, int count) {
+        send(source, "Placed %d template(s) x %d at %s (area cleared)",
+                result.templates().size(), count, result.origin());
+        sendTimings(source, "without processor", result.without());
+        sendTimings(source, "with processor", result.with());
+
+        PlacementPhases phases = result.phases();
+        long overhead = result.with().total() - result.without().total();
+        // The phases come from separate recorded placements, so they don't have to add up to the timed overhead.
+        send(source, "  processor (recorded separately): classification %.1f ms, context %.1f ms, mapping %.1f ms, "
+                        + "entities %.1f ms; timed placement overhead %.1f ms",
+                millis(phases.nanos(PlacementPhases.Phase.CLASSIFICATION)),
+                millis(phases.nanos(PlacementPhases.Phase.CONTEXT)),
+                millis(phases.nanos(PlacementPhases.Phase.MAPPING)),
+                millis(phases.nanos(PlacementPhases.Phase.ENTITIES)),
+                millis(overhead));
+
+        if (result.templates().size() > 1) {
+            send(source, "Slowest with processor (p50):");
+            result.templates().stream()
+                    .limit(TOP_ENTRIES)
+                    .forEach(t -> send(source, "  %s: %.2f ms (%.2f ms without)",
+                            t.id(), millis(t.with().percentile(0.5)), millis(t.without().percentile(0.5))));
+        }
+    }
+
+    private static void sendTimings(CommandSourceStack source, String label, PlacementBench.Timings timings) {
+        send(source, "  %s: p50 %.2f ms, p99 %.2f ms, %.0f blocks/s",
+                label,
+                millis(timings.percentile(0.5)),
+                millis(timings.percentile(0.99)),
+                timings.blocksPerSecond());
+    }
+
+    private static void send(CommandSourceStack source, String format, Object... args) {
+        Component message = Component.literal(String.format(format, args));
+        source.sendSuccess(() -> message, false);
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1_000_000.0;
+    }
+
+    private static double perBlock(long nanos, long blocks) {
+        return blocks == 0 ? 0.0 : (double) nanos / blocks;
+    }
+}
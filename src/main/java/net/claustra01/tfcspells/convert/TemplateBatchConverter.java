@@ -0,0 +1,301 @@
+package net.claustra01.tfcspells.convert;
+
+import it.unimi.dsi.fastutil.ints.IntOpenHashSet;
+import it.unimi.dsi.fastutil.ints.IntSet;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import javax.annotation.Nullable;
+import net.claustra01.tfcspells.world.processor.TfcBlockReplacementProcessor;
+import net.claustra01.tfcspells.world.processor.TfcBlockReplacementProcessor.ReplacementScope;
+import net.minecraft.core.BlockPos;
+import net.minecraft.core.registries.BuiltInRegistries;
+import net.minecraft.nbt.CompoundTag;
+import net.minecraft.nbt.ListTag;
+import net.minecraft.nbt.NbtAccounter;
+import net.minecraft.nbt.NbtIo;
+import net.minecraft.nbt.NbtUtils;
+import net.minecraft.nbt.Tag;
+import net.minecraft.resources.ResourceLocation;
+import net.minecraft.util.datafix.DataFixTypes;
+import net.minecraft.util.datafix.DataFixers;
+import net.minecraft.world.level.block.state.BlockState;
+import net.minecraft.world.level.levelgen.structure.templatesystem.StructureTemplate;
+import net.minecraft.world.phys.Vec3;
+
+/**
+ * Converts a directory or zip of vanilla {@code .nbt} structure templates to TFC blocks, with the same rules
+ * {@link TfcBlockReplacementProcessor} applies during placement but a fixed rock/soil/wood context instead of probing
+ * the ground.
+ *
+ * <p>Each file is its own task on a fixed thread pool. A task reads one template, writes one output per context and
+ * keeps only a {@link FileResult}, so memory use depends on the largest template rather than the corpus. Templates are
+ * upgraded to the current data version first, like {@code StructureTemplateManager} does when loading them.</p>
+ *
+ * <p>Outputs are only ever written inside the output directory; an input entry whose path would resolve outside it
+ * (e.g. a zip entry containing {@code ..}) fails that file instead.</p>
+ */
+public final class TemplateBatchConverter {
+    /** Context axis value that expands to every variant TFC registers. */
+    public static final String ALL = "all";
+
+    private static final String NS_TFC = "tfc";
+    private static final String EXTENSION = ".nbt";
+    // Vanilla's own fallback for templates saved before data versions were recorded.
+    private static final int LEGACY_DATA_VERSION = 500;
+
+    private final Path input;
+    private final Path output;
+    private final List<Context> contexts;
+    private final int threads;
+
+    public record Context(String rock, String soil, String wood) {
+        String directoryName() {
+            return rock + "_" + soil + "_" + wood;
+        }
+    }
+
+    /**
+     * Outcome of one file. {@code blocks} and {@code replaced} count positions in the template (first palette, first
+     * context); {@code error} is set if the file couldn't be converted.
+     */
+    public record FileResult(
+            String file, long nanos, int blocks, int replaced, Set<String> unmapped, @Nullable String error) {}
+
+    public TemplateBatchConverter(Path input, Path output, List<Context> contexts, int threads) {
+        if (contexts.isEmpty()) {
+            throw new IllegalArgumentException("At least one context is required");
+        }
+        this.input = input;
+        this.output = output.toAbsolutePath().normalize();
+        this.contexts = List.copyOf(contexts);
+        this.threads = threads;
+    }
+
+    /**
+     * Expands each axis ({@link #ALL} or a single name) into the cross product of contexts.
+     *
+     * @throws IllegalArgumentException if a name isn't a variant TFC registers for its axis
+     */
+    public static List<Context> contexts(String rock, String soil, String wood) {
+        List<Context> out = new ArrayList<>();
+        for (String r : expand("rock", rock, "rock/raw/")) {
+            for (String s : expand("soil", soil, "dirt/")) {
+                for (String w : expand("wood", wood, "wood/log/")) {
+                    out.add(new Context(r, s, w));
+                }
+            }
+        }
+        return out;
+    }
+
+    private static List<String> expand(String axis, String value, String prefix) {
+        List<String> variants = variants(prefix);
+        if (ALL.equals(value)) {
+            return variants;
+        }
+        if (!variants.contains(value)) {
+            throw new IllegalArgumentException(String.format(
+                    "Unknown %s '%s'; expected %s or one of: %s", axis, value, ALL, String.join(" ", variants)));
+        }
+        return List.of(value);
+    }
+
+    // Every tfc:<prefix><name> block, minus the stair/slab/wall variants.
+    private static List<String> variants(String prefix) {
+        Set<String> names = new TreeSet<>();
+        for (ResourceLocation id : BuiltInRegistries.BLOCK.keySet()) {
+            if (!NS_TFC.equals(id.getNamespace()) || !id.getPath().startsWith(prefix)) {
+                continue;
+            }
+            String name = id.getPath().substring(prefix.length());
+            if (name.indexOf('/') < 0
+                    && !name.endsWith("_stairs")
+                    && !name.endsWith("_slab")
+                    && !name.endsWith("_wall")) {
+                names.add(name);
+            }
+        }
+        return List.copyOf(names);
+    }
+
+    /**
+     * Converts every template under the input, calling {@code onFile} (from a worker thread) as each one finishes.
+     *
+     * @return the number of files processed
+     */
+    public int run(Consumer<FileResult> onFile) throws IOException, InterruptedException {
+        boolean zip = Files.isRegularFile(input);
+        try (FileSystem zipFs = zip ? FileSystems.newFileSystem(input) : null) {
+            Path root = zipFs != null ? zipFs.getRootDirectories().iterator().next() : input;
+            ExecutorService executor = Executors.newFixedThreadPool(threads, runnable -> {
+                Thread thread = new Thread(runnable, "tfcspells-convert");
+                thread.setDaemon(true);
+                return thread;
+            });
+            AtomicInteger files = new AtomicInteger();
+            List<Future<?>> tasks = new ArrayList<>();
+            try (Stream<Path> paths = Files.walk(root)) {
+                Iterator<Path> it = paths
+                        .filter(path -> path.getFileName() != null && path.getFileName().toString().endsWith(EXTENSION))
+                        .filter(Files::isRegularFile)
+                        .iterator();
+                while (it.hasNext()) {
+                    Path file = it.next();
+                    String relative = root.relativize(file).toString();
+                    tasks.add(executor.submit(() -> {
+                        onFile.accept(convertFile(file, relative));
+                        files.incrementAndGet();
+                    }));
+                }
+            } finally {
+                executor.shutdown();
+            }
+            for (Future<?> task : tasks) {
+                try {
+                    task.get();
+                } catch (ExecutionException e) {
+                    throw new IOException(e.getCause());
+                }
+            }
+            return files.get();
+        }
+    }
+
+    private FileResult convertFile(Path file, String relative) {
+        long start = System.nanoTime();
+        try {
+            CompoundTag template;
+            try (InputStream in = Files.newInputStream(file)) {
+                template = NbtIo.readCompressed(in, NbtAccounter.unlimitedHeap());
+            }
+            template = DataFixTypes.STRUCTURE.updateToCurrentVersion(
+                    DataFixers.getDataFixer(), template, NbtUtils.getDataVersion(template, LEGACY_DATA_VERSION));
+
+            Stats stats = null;
+            for (Context context : contexts) {
+                CompoundTag converted = template.copy();
+                Stats contextStats = convert(converted, context);
+                if (stats == null) {
+                    stats = contextStats;
+                } else {
+                    // Unmapped ids can depend on the context (e.g. a rock without a brick variant).
+                    stats.unmapped.addAll(contextStats.unmapped);
+                }
+                NbtUtils.addCurrentDataVersion(converted);
+
+                Path target = (contexts.size() == 1
+                        ? output.resolve(relative)
+                        : output.resolve(context.directoryName()).resolve(relative)).normalize();
+                if (!target.startsWith(output)) {
+                    throw new IOException("Refusing to write outside " + output + ": " + relative);
+                }
+                Files.createDirectories(target.getParent());
+                try (OutputStream out = Files.newOutputStream(target)) {
+                    NbtIo.writeCompressed(converted, out);
+                }
+            }
+
+            return new FileResult(
+                    relative, System.nanoTime() - start, stats.blocks, stats.replaced, stats.unmapped, null);
+        } catch (Exception e) {
+            return new FileResult(relative, System.nanoTime() - start, 0, 0, Set.of(), String.valueOf(e));
+        }
+    }
+
+    private static final class Stats {
+        int blocks;
+        int replaced;
+        final Set<String> unmapped = new TreeSet<>();
+    }
+
+    private static Stats convert(CompoundTag template, Context context) {
+        Stats stats = new Stats();
+
+        List<ListTag> palettes = new ArrayList<>();
+        if (template.contains("palettes", Tag.TAG_LIST)) {
+            ListTag list = template.getList("palettes", Tag.TAG_LIST);
+            for (int i = 0; i < list.size(); i++) {
+                palettes.add(list.getList(i));
+            }
+        } else {
+            palettes.add(template.getList("palette", Tag.TAG_COMPOUND));
+        }
+
+        // A state index drops block entity NBT if it became a firepit in any palette.
+        IntSet dropNbt = new IntOpenHashSet();
+        IntSet changed = new IntOpenHashSet();
+        for (int p = 0; p < palettes.size(); p++) {
+            ListTag palette = palettes.get(p);
+            for (int i = 0; i < palette.size(); i++) {
+                CompoundTag stateTag = palette.getCompound(i);
+                ResourceLocation id = ResourceLocation.tryParse(stateTag.getString("Name"));
+                if (id == null || !BuiltInRegistries.BLOCK.containsKey(id)) {
+                    stats.unmapped.add(stateTag.getString("Name"));
+                    continue;
+                }
+
+                BlockState in = NbtUtils.readBlockState(BuiltInRegistries.BLOCK.asLookup(), stateTag);
+                TfcBlockReplacementProcessor.Conversion conversion = TfcBlockReplacementProcessor.convertState(
+                        in, context.rock(), context.soil(), context.wood(), ReplacementScope.FULL);
+                if (conversion.unmapped()) {
+                    stats.unmapped.add(id.toString());
+                }
+                if (conversion.state() != in) {
+                    palette.set(i, NbtUtils.writeBlockState(conversion.state()));
+                    if (p == 0) {
+                        changed.add(i);
+                    }
+                }
+                if (!conversion.keepNbt()) {
+                    dropNbt.add(i);
+                }
+            }
+        }
+
+        ListTag blocks = template.getList("blocks", Tag.TAG_COMPOUND);
+        stats.blocks = blocks.size();
+        for (int i = 0; i < blocks.size(); i++) {
+            CompoundTag block = blocks.getCompound(i);
+            int state = block.getInt("state");
+            if (changed.contains(state)) {
+                stats.replaced++;
+            }
+            if (dropNbt.contains(state)) {
+                block.remove("nbt");
+            }
+        }
+
+        ListTag entities = template.getList("entities", Tag.TAG_COMPOUND);
+        for (int i = 0; i < entities.size(); i++) {
+            CompoundTag entity = entities.getCompound(i);
+            if (!entity.contains("nbt", Tag.TAG_COMPOUND)) {
+                continue;
+            }
+            ListTag pos = entity.getList("pos", Tag.TAG_DOUBLE);
+            ListTag blockPos = entity.getList("blockPos", Tag.TAG_INT);
+            StructureTemplate.StructureEntityInfo info = new StructureTemplate.StructureEntityInfo(
+                    new Vec3(pos.getDouble(0), pos.getDouble(1), pos.getDouble(2)),
+                    new BlockPos(blockPos.getInt(0), blockPos.getInt(1), blockPos.getInt(2)),
+                    entity.getCompound("nbt"));
+            entity.put("nbt", TfcBlockReplacementProcessor.processEntityInfo(info).nbt());
+        }
+        return stats;
+    }
+}
@@ -0,0 +1,91 @@
+package net.claustra01.tfcspells.gametest;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import net.claustra01.tfcspells.TfcSpells;
+import net.minecraft.resources.ResourceLocation;
+
+/**
+ * Collects placement timings from the game tests and writes them to a JSON file in the server's working directory.
+ *
+ * <p>The file is rewritten after every run so it is complete whichever tests were selected. Per-structure
+ * {@code nanos} is the median of the timed placements (all of them are listed under {@code samplesNanos}), and the
+ * summary totals add up those medians.</p>
+ */
+final class PlacementResults {
+    private static final Path FILE = Path.of("tfcspells-placement-results.json");
+    private static final Gson GSON = new GsonBuilder().setPrettyPrinting().create();
+    private static final Map<String, List<Placement>> RUNS = new TreeMap<>();
+
+    /** One template's timed placements; {@link #nanos} is their median. */
+    record Placement(ResourceLocation id, int blocks, long[] samples, Set<String> vanillaLeftovers) {
+        long nanos() {
+            long[] sorted = samples.clone();
+            Arrays.sort(sorted);
+            int mid = sorted.length / 2;
+            return sorted.length % 2 == 1 ? sorted[mid] : (sorted[mid - 1] + sorted[mid]) / 2;
+        }
+    }
+
+    private PlacementResults() {}
+
+    static synchronized void record(String variant, List<Placement> placements) {
+        RUNS.put(variant, List.copyOf(placements));
+        write();
+    }
+
+    private static void write() {
+        JsonObject root = new JsonObject();
+        for (Map.Entry<String, List<Placement>> run : RUNS.entrySet()) {
+            long totalNanos = 0;
+            long totalBlocks = 0;
+            JsonArray structures = new JsonArray();
+            for (Placement placement : run.getValue()) {
+                totalNanos += placement.nanos();
+                totalBlocks += placement.blocks();
+
+                JsonObject structure = new JsonObject();
+                structure.addProperty("id", placement.id().toString());
+                structure.addProperty("blocks", placement.blocks());
+                structure.addProperty("nanos", placement.nanos());
+                structure.addProperty("nanosPerBlock", perBlock(placement.nanos(), placement.blocks()));
+                JsonArray samples = new JsonArray();
+                Arrays.stream(placement.samples()).forEach(samples::add);
+                structure.add("samplesNanos", samples);
+                JsonArray leftovers = new JsonArray();
+                placement.vanillaLeftovers().forEach(leftovers::add);
+                structure.add("vanillaLeftovers", leftovers);
+                structures.add(structure);
+            }
+
+            JsonObject summary = new JsonObject();
+            summary.addProperty("structures", run.getValue().size());
+            summary.addProperty("blocks", totalBlocks);
+            summary.addProperty("nanos", totalNanos);
+            summary.addProperty("nanosPerBlock", perBlock(totalNanos, totalBlocks));
+            summary.addProperty("blocksPerSecond", totalNanos == 0 ? 0.0 : totalBlocks * 1.0e9 / totalNanos);
+            summary.add("perStructure", structures);
+            root.add(run.getKey(), summary);
+        }
+
+        try {
+            Files.writeString(FILE, GSON.toJson(root));
+        } catch (IOException e) {
+            TfcSpells.LOGGER.warn("Failed to write placement results to {}", FILE.toAbsolutePath(), e);
+        }
+    }
+
+    private static double perBlock(long nanos, long blocks) {
+        return blocks == 0 ? 0.0 : (double) nanos / blocks;
+    }
+}
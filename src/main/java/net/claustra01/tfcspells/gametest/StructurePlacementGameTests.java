@@ -0,0 +1,139 @@
+package net.claustra01.tfcspells.gametest;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import net.claustra01.tfcspells.TfcSpells;
+import net.claustra01.tfcspells.access.StructureTemplatePalettesAccess;
+import net.claustra01.tfcspells.world.IronsStructureTemplates;
+import net.claustra01.tfcspells.world.TfcGround;
+import net.claustra01.tfcspells.world.processor.TfcBlockReplacementProcessor;
+import net.minecraft.core.BlockPos;
+import net.minecraft.core.registries.BuiltInRegistries;
+import net.minecraft.gametest.framework.GameTest;
+import net.minecraft.gametest.framework.GameTestHelper;
+import net.minecraft.resources.ResourceLocation;
+import net.minecraft.server.level.ServerLevel;
+import net.minecraft.tags.BlockTags;
+import net.minecraft.util.RandomSource;
+import net.minecraft.world.level.block.Block;
+import net.minecraft.world.level.block.state.BlockState;
+import net.minecraft.world.level.levelgen.structure.BoundingBox;
+import net.minecraft.world.level.levelgen.structure.templatesystem.StructurePlaceSettings;
+import net.minecraft.world.level.levelgen.structure.templatesystem.StructureTemplate;
+import net.neoforged.neoforge.gametest.GameTestHolder;
+import net.neoforged.neoforge.gametest.PrefixGameTestTemplate;
+
+/**
+ * End-to-end placement of every Iron's structure template onto a patch of TFC soil and rock.
+ *
+ * <p>The same templates are placed once through the normal path (the mixin appends
+ * {@link net.claustra01.tfcspells.world.processor.TfcBlockReplacementProcessor}) and once from an untagged copy that
+ * the mixin ignores, giving an A/B wall time for the whole placement. Each template is placed once untimed to warm up
+ * and then {@value #TIMED_PLACEMENTS} more times; the median of the timed placements goes to
+ * {@code tfcspells-placement-results.json}. Run with {@code ./gradlew runGameTestServer}.</p>
+ */
+@GameTestHolder(TfcSpells.MOD_ID)
+@PrefixGameTestTemplate(false)
+public final class StructurePlacementGameTests {
+    private static final String EMPTY_TEMPLATE = TfcSpells.MOD_ID + ":empty";
+    private static final String WITH_PROCESSOR = "with_processor";
+    private static final String WITHOUT_PROCESSOR = "without_processor";
+
+    // Keep placements clear of the test's own structure block.
+    private static final BlockPos PLACEMENT_OFFSET = new BlockPos(8, 1, 8);
+    private static final int WARMUP_PLACEMENTS = 1;
+    private static final int TIMED_PLACEMENTS = 5;
+
+    private StructurePlacementGameTests() {}
+
+    @GameTest(template = EMPTY_TEMPLATE, batch = "tfcspells_placement_" + WITH_PROCESSOR)
+    public static void placeAllWithProcessor(GameTestHelper helper) {
+        placeAll(helper, true);
+    }
+
+    @GameTest(template = EMPTY_TEMPLATE, batch = "tfcspells_placement_" + WITHOUT_PROCESSOR)
+    public static void placeAllWithoutProcessor(GameTestHelper helper) {
+        placeAll(helper, false);
+    }
+
+    private static void placeAll(GameTestHelper helper, boolean withProcessor) {
+        ServerLevel level = helper.getLevel();
+        BlockPos origin = helper.absolutePos(PLACEMENT_OFFSET);
+
+        List<PlacementResults.Placement> placements = new ArrayList<>();
+        List<String> failures = new ArrayList<>();
+        for (ResourceLocation id : IronsStructureTemplates.list(level.getServer().getResourceManager())) {
+            StructureTemplate template = level.getStructureManager().getOrCreate(id);
+            List<StructureTemplate.Palette> palettes = ((StructureTemplatePalettesAccess) template).tfcspells$getPalettes();
+            if (palettes.isEmpty()) {
+                continue;
+            }
+            if (!withProcessor) {
+                template = IronsStructureTemplates.untagged(template);
+            }
+
+            StructurePlaceSettings settings = new StructurePlaceSettings();
+            BoundingBox box = template.getBoundingBox(settings, origin);
+            int blocks = settings.getRandomPalette(palettes, origin).blocks().size();
+
+            // One untimed placement first, so class loading and JIT warm-up don't land on the first timed one.
+            long[] nanos = new long[WARMUP_PLACEMENTS + TIMED_PLACEMENTS];
+            Set<String> leftovers = Set.of();
+            for (int i = 0; i < nanos.length; i++) {
+                TfcGround.prepare(level, box, origin.getY());
+                // Every placement resolves its context like a fresh worldgen placement at this origin would.
+                TfcBlockReplacementProcessor.clearContextCaches();
+                long start = System.nanoTime();
+                template.placeInWorld(level, origin, origin, settings, RandomSource.create(0L), Block.UPDATE_CLIENTS);
+                nanos[i] = System.nanoTime() - start;
+                if (i == 0 && withProcessor) {
+                    leftovers = findVanillaTerrain(level, box);
+                }
+                TfcGround.clear(level, TfcGround.withGround(box, origin.getY()));
+            }
+
+            if (!leftovers.isEmpty()) {
+                failures.add(id + " " + leftovers);
+            }
+            long[] timed = Arrays.copyOfRange(nanos, WARMUP_PLACEMENTS, nanos.length);
+            placements.add(new PlacementResults.Placement(id, blocks, timed, leftovers));
+        }
+
+        PlacementResults.record(withProcessor ? WITH_PROCESSOR : WITHOUT_PROCESSOR, placements);
+        if (!failures.isEmpty()) {
+            helper.fail("Vanilla terrain blocks left after replacement: " + String.join(", ", failures));
+        }
+        helper.succeed();
+    }
+
+    private static Set<String> findVanillaTerrain(ServerLevel level, BoundingBox box) {
+        Set<String> found = new TreeSet<>();
+        for (BlockPos pos : BlockPos.betweenClosed(
+                box.minX(), box.minY(), box.minZ(), box.maxX(), box.maxY(), box.maxZ())) {
+            BlockState state = level.getBlockState(pos);
+            if (isVanillaTerrain(state)) {
+                found.add(BuiltInRegistries.BLOCK.getKey(state.getBlock()).toString());
+            }
+        }
+        return found;
+    }
+
+    private static boolean isVanillaTerrain(BlockState state) {
+        ResourceLocation id = BuiltInRegistries.BLOCK.getKey(state.getBlock());
+        if (!"minecraft".equals(id.getNamespace())) {
+            return false;
+        }
+        // The processor deliberately leaves these families alone.
+        if (id.getPath().contains("blackstone") || id.getPath().contains("deepslate")) {
+            return false;
+        }
+        return state.is(BlockTags.BASE_STONE_OVERWORLD)
+                || state.is(BlockTags.STONE_BRICKS)
+                || state.is(BlockTags.LOGS)
+                || state.is(BlockTags.PLANKS)
+                || state.is(BlockTags.DIRT);
+    }
+}
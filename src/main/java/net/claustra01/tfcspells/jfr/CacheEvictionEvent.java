@@ -0,0 +1,27 @@
+package net.claustra01.tfcspells.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * A thread's context cache being emptied because it reached its size limit.
+ */
+@Name("net.claustra01.tfcspells.CacheEviction")
+@Label("Context Cache Eviction")
+@Category({"TFC Spells", "Worldgen"})
+@Description("A per-thread context cache of the replacement processor was cleared")
+@Enabled(false)
+@StackTrace(false)
+public final class CacheEvictionEvent extends Event {
+    @Label("Cache")
+    @Description("rock, soil or wood")
+    public String cache;
+
+    @Label("Entries")
+    public int entries;
+}
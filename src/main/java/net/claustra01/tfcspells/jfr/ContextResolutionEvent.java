@@ -0,0 +1,45 @@
+package net.claustra01.tfcspells.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * A context cache miss: the processor resolving the rock, soil or wood type for a placement origin.
+ */
+@Name("net.claustra01.tfcspells.ContextResolution")
+@Label("Context Resolution")
+@Category({"TFC Spells", "Worldgen"})
+@Description("Rock, soil or wood type resolved for a structure placement origin")
+@Enabled(false)
+@StackTrace(false)
+public final class ContextResolutionEvent extends Event {
+    public static final String SOURCE_PROBE = "probe";
+    public static final String SOURCE_DEFAULT = "default";
+    public static final String SOURCE_BLOCK = "block";
+    public static final String SOURCE_PALETTE = "palette";
+    public static final String SOURCE_INDEX = "index";
+
+    @Label("Template")
+    public String templateId;
+
+    @Label("Kind")
+    @Description("rock, soil or wood")
+    public String kind;
+
+    @Label("Value")
+    public String value;
+
+    @Label("Source")
+    @Description("Where the value came from: probe, index (a nearby probe), block, palette, or default when every "
+            + "lookup failed")
+    public String source;
+
+    @Label("Probe Depth")
+    @Description("Blocks read below the origin; 0 when the ground wasn't probed")
+    public int probeDepth;
+}
@@ -0,0 +1,66 @@
+package net.claustra01.tfcspells.jfr;
+
+import javax.annotation.Nullable;
+import net.minecraft.resources.ResourceLocation;
+
+/**
+ * Tracks the {@link TemplatePlacementEvent} of the placement running on the current thread.
+ *
+ * <p>The processor runs synchronously inside {@code placeInWorld}, so per-block counts can be attributed through a
+ * thread local. Nothing is tracked unless the event is enabled in a recording.</p>
+ *
+ * <p>Callers pair {@link #begin} and {@link #end} in a {@code finally}, passing {@link #end} what {@link #begin}
+ * returned, so a recording that starts or stops mid-placement never pops a frame it didn't push.</p>
+ */
+public final class PlacementEvents {
+    private static final ThreadLocal<TemplatePlacementEvent> CURRENT = new ThreadLocal<>();
+
+    private PlacementEvents() {}
+
+    /**
+     * Starts tracking a placement on this thread.
+     *
+     * @return whether an event was pushed
+     */
+    public static boolean begin(ResourceLocation templateId) {
+        TemplatePlacementEvent event = new TemplatePlacementEvent();
+        if (!event.isEnabled()) {
+            return false;
+        }
+        event.templateId = templateId.toString();
+        event.parent = CURRENT.get();
+        CURRENT.set(event);
+        event.begin();
+        return true;
+    }
+
+    /**
+     * Commits the event pushed by the matching {@link #begin}, if it pushed one.
+     */
+    public static void end(boolean pushed) {
+        if (!pushed) {
+            return;
+        }
+        TemplatePlacementEvent event = CURRENT.get();
+        if (event == null) {
+            return;
+        }
+        event.commit();
+        if (event.parent != null) {
+            CURRENT.set(event.parent);
+        } else {
+            CURRENT.remove();
+        }
+    }
+
+    public static void blockProcessed(boolean replaced) {
+        @Nullable TemplatePlacementEvent event = CURRENT.get();
+        if (event == null) {
+            return;
+        }
+        event.blockCount++;
+        if (replaced) {
+            event.replacedCount++;
+        }
+    }
+}
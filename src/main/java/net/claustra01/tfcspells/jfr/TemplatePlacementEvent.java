@@ -0,0 +1,36 @@
+package net.claustra01.tfcspells.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * One {@code StructureTemplate.placeInWorld} call for a template the replacement processor is attached to.
+ *
+ * <p>Worldgen places structures one chunk at a time, so a single structure usually shows up as several events.</p>
+ */
+@Name("net.claustra01.tfcspells.TemplatePlacement")
+@Label("Template Placement")
+@Category({"TFC Spells", "Worldgen"})
+@Description("Placement of an Iron's structure template through the TFC replacement processor")
+@Enabled(false)
+@StackTrace(false)
+public final class TemplatePlacementEvent extends Event {
+    @Label("Template")
+    public String templateId;
+
+    @Label("Blocks")
+    @Description("Blocks passed through the replacement processor")
+    public int blockCount;
+
+    @Label("Replaced")
+    @Description("Blocks the replacement processor changed")
+    public int replacedCount;
+
+    /** Placement this one is nested in, if any. Not recorded. */
+    transient TemplatePlacementEvent parent;
+}
@@ -1,10 +1,16 @@
 package net.claustra01.tfcspells.mixin;
 
+import com.llamalad7.mixinextras.injector.ModifyExpressionValue;
+import com.llamalad7.mixinextras.injector.wrapmethod.WrapMethod;
+import com.llamalad7.mixinextras.injector.wrapoperation.Operation;
 import java.util.List;
 import java.util.Set;
 import javax.annotation.Nullable;
+import net.claustra01.tfcspells.access.StructureTemplateEntitiesAccess;
 import net.claustra01.tfcspells.access.StructureTemplateIdAccess;
 import net.claustra01.tfcspells.access.StructureTemplatePalettesAccess;
+import net.claustra01.tfcspells.jfr.PlacementEvents;
+import net.claustra01.tfcspells.trace.TraceRecorder;
 import net.claustra01.tfcspells.world.processor.TfcBlockReplacementProcessor;
 import net.minecraft.core.BlockPos;
 import net.minecraft.resources.ResourceLocation;
@@ -21,11 +27,13 @@ import org.spongepowered.asm.mixin.injection.Inject;
 import org.spongepowered.asm.mixin.injection.callback.CallbackInfoReturnable;
 
 @Mixin(StructureTemplate.class)
-public abstract class StructureTemplateMixin implements StructureTemplateIdAccess, StructureTemplatePalettesAccess {
+public abstract class StructureTemplateMixin
+        implements StructureTemplateIdAccess, StructureTemplatePalettesAccess, StructureTemplateEntitiesAccess {
     @Unique
     private static final Set<String> TFC_SPELLS_STRUCTURE_NAMESPACES = Set.of("irons_spellbooks");
 
     @Shadow @Final private List<StructureTemplate.Palette> palettes;
+    @Shadow @Final private List<StructureTemplate.StructureEntityInfo> entityInfoList;
 
     @Unique @Nullable private ResourceLocation tfcspells$templateId;
 
@@ -45,6 +53,11 @@ public abstract class StructureTemplateMixin implements StructureTemplateIdAcces
         return palettes;
     }
 
+    @Override
+    public List<StructureTemplate.StructureEntityInfo> tfcspells$getEntityInfoList() {
+        return entityInfoList;
+    }
+
     // NeoForge runtime uses official names; we don't generate a refmap, so disable remapping.
     @Inject(method = "placeInWorld", at = @At("HEAD"), remap = false)
     private void tfcspells$addProcessor(
@@ -65,4 +78,52 @@ public abstract class StructureTemplateMixin implements StructureTemplateIdAcces
             settings.addProcessor(TfcBlockReplacementProcessor.INSTANCE);
         }
     }
+
+    // Wraps the whole method so the per-thread placement state is popped even if placement throws (e.g. from another
+    // mod's processor); a RETURN inject would leave it behind.
+    @WrapMethod(method = "placeInWorld", remap = false)
+    private boolean tfcspells$trackPlacement(
+            ServerLevelAccessor serverLevel,
+            BlockPos offset,
+            BlockPos pos,
+            StructurePlaceSettings settings,
+            RandomSource random,
+            int flags,
+            Operation<Boolean> original) {
+        ResourceLocation id = this.tfcspells$templateId;
+        if (id == null || !TFC_SPELLS_STRUCTURE_NAMESPACES.contains(id.getNamespace())) {
+            return original.call(serverLevel, offset, pos, settings, random, flags);
+        }
+
+        boolean event = PlacementEvents.begin(id);
+        boolean trace = false;
+        boolean completed = false;
+        try {
+            // Before placement: the trace snapshots the ground the placement is about to overwrite.
+            trace = TraceRecorder.begin(id, serverLevel, offset);
+            boolean placed = original.call(serverLevel, offset, pos, settings, random, flags);
+            completed = true;
+            return placed;
+        } finally {
+            try {
+                TraceRecorder.end(trace, completed);
+            } finally {
+                PlacementEvents.end(event);
+            }
+        }
+    }
+
+    // Captures the palette placeInWorld actually picked, without consuming the settings' random a second time.
+    @ModifyExpressionValue(
+            method = "placeInWorld",
+            at = @At(
+                    value = "INVOKE",
+                    target = "Lnet/minecraft/world/level/levelgen/structure/templatesystem/StructurePlaceSettings;"
+                            + "getRandomPalette(Ljava/util/List;Lnet/minecraft/core/BlockPos;)"
+                            + "Lnet/minecraft/world/level/levelgen/structure/templatesystem/StructureTemplate$Palette;"),
+            remap = false)
+    private StructureTemplate.Palette tfcspells$recordPalette(StructureTemplate.Palette palette) {
+        TraceRecorder.palette(palettes.indexOf(palette));
+        return palette;
+    }
 }
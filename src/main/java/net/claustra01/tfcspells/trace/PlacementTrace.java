@@ -0,0 +1,235 @@
+package net.claustra01.tfcspells.trace;
+
+import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import javax.annotation.Nullable;
+
+/**
+ * Binary format for recorded template placements.
+ *
+ * <p>A trace is a gzip stream holding a header ({@link #MAGIC}, {@link #VERSION}) followed by one record per placement.
+ * Strings (ids, context names) are interned: the first occurrence is written inline and later ones as a table index.
+ * The probed column is stored top-down and run-length encoded, so a typical record is a few dozen bytes.</p>
+ */
+public final class PlacementTrace {
+    static final int MAGIC = 0x54464354; // "TFCT"
+    static final int VERSION = 2;
+    // Version 1 had no context source; its records read as probed.
+    private static final int VERSION_WITHOUT_SOURCE = 1;
+
+    private static final int RECORD = 1;
+
+    private PlacementTrace() {}
+
+    /**
+     * One {@code placeInWorld} call.
+     *
+     * @param paletteIndex index of the palette that was placed, or -1 if unknown
+     * @param rock resolved context after placement, or null if it wasn't resolved (for example outside the overworld)
+     * @param indexed whether rock or soil came from the server's context index instead of a probe of {@code column}
+     * @param column block ids read straight down from the placement origin, starting at {@code y}
+     */
+    public record Entry(
+            String templateId,
+            String dimension,
+            int x,
+            int y,
+            int z,
+            int paletteIndex,
+            @Nullable String rock,
+            @Nullable String soil,
+            @Nullable String wood,
+            boolean indexed,
+            int minBuildHeight,
+            List<String> column) {}
+
+    public static final class Writer implements Closeable {
+        private final DataOutputStream out;
+        private final Object2IntOpenHashMap<String> strings = new Object2IntOpenHashMap<>();
+
+        public Writer(Path file) throws IOException {
+            // Sync flush so a trace cut short by a crash is still readable up to the last flush.
+            this.out = new DataOutputStream(
+                    new BufferedOutputStream(new GZIPOutputStream(Files.newOutputStream(file), true)));
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+        }
+
+        public void write(Entry entry) throws IOException {
+            out.writeByte(RECORD);
+            writeString(entry.templateId());
+            writeString(entry.dimension());
+            out.writeInt(entry.x());
+            out.writeInt(entry.y());
+            out.writeInt(entry.z());
+            writeVarInt(entry.paletteIndex() + 1);
+            writeString(entry.rock());
+            writeString(entry.soil());
+            writeString(entry.wood());
+            out.writeBoolean(entry.indexed());
+            out.writeInt(entry.minBuildHeight());
+
+            List<String> column = entry.column();
+            int runs = 0;
+            for (int i = 0; i < column.size(); i++) {
+                if (i == 0 || !column.get(i).equals(column.get(i - 1))) {
+                    runs++;
+                }
+            }
+            writeVarInt(runs);
+            int i = 0;
+            while (i < column.size()) {
+                String id = column.get(i);
+                int length = 1;
+                while (i + length < column.size() && column.get(i + length).equals(id)) {
+                    length++;
+                }
+                writeString(id);
+                writeVarInt(length);
+                i += length;
+            }
+        }
+
+        public void flush() throws IOException {
+            out.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            out.close();
+        }
+
+        /** 0 is null, {@code size + 1} introduces a new string written inline, anything else is a table index + 1. */
+        private void writeString(@Nullable String s) throws IOException {
+            if (s == null) {
+                writeVarInt(0);
+                return;
+            }
+            int index = strings.getOrDefault(s, -1);
+            if (index >= 0) {
+                writeVarInt(index + 1);
+                return;
+            }
+            index = strings.size();
+            strings.put(s, index);
+            writeVarInt(index + 1);
+            out.writeUTF(s);
+        }
+
+        private void writeVarInt(int value) throws IOException {
+            while ((value & ~0x7F) != 0) {
+                out.writeByte((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            out.writeByte(value);
+        }
+    }
+
+    public static final class Reader implements Closeable {
+        private final DataInputStream in;
+        private final List<String> strings = new ArrayList<>();
+        private final int version;
+
+        public Reader(Path file) throws IOException {
+            this.in = new DataInputStream(new BufferedInputStream(new GZIPInputStream(Files.newInputStream(file))));
+            if (in.readInt() != MAGIC) {
+                throw new IOException("Not a placement trace: " + file);
+            }
+            version = in.readInt();
+            if (version != VERSION && version != VERSION_WITHOUT_SOURCE) {
+                throw new IOException("Unsupported placement trace version " + version + ": " + file);
+            }
+        }
+
+        /**
+         * Returns the next record, or null at the end of the trace. A record cut off by a crash is treated as the end.
+         */
+        public @Nullable Entry next() throws IOException {
+            int marker;
+            try {
+                marker = in.read();
+            } catch (EOFException e) {
+                return null;
+            }
+            if (marker < 0) {
+                return null;
+            }
+            if (marker != RECORD) {
+                throw new IOException("Corrupt placement trace: unexpected record marker " + marker);
+            }
+
+            try {
+                String templateId = readString();
+                String dimension = readString();
+                int x = in.readInt();
+                int y = in.readInt();
+                int z = in.readInt();
+                int paletteIndex = readVarInt() - 1;
+                String rock = readString();
+                String soil = readString();
+                String wood = readString();
+                boolean indexed = version != VERSION_WITHOUT_SOURCE && in.readBoolean();
+                int minBuildHeight = in.readInt();
+
+                int runs = readVarInt();
+                List<String> column = new ArrayList<>();
+                for (int run = 0; run < runs; run++) {
+                    String id = readString();
+                    int length = readVarInt();
+                    for (int i = 0; i < length; i++) {
+                        column.add(id);
+                    }
+                }
+                return new Entry(templateId, dimension, x, y, z, paletteIndex, rock, soil, wood, indexed,
+                        minBuildHeight, column);
+            } catch (EOFException e) {
+                return null;
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+
+        private String readString() throws IOException {
+            int index = readVarInt();
+            if (index == 0) {
+                return null;
+            }
+            if (index == strings.size() + 1) {
+                String s = in.readUTF();
+                strings.add(s);
+                return s;
+            }
+            if (index > strings.size()) {
+                throw new IOException("Corrupt placement trace: string index " + index + " out of range");
+            }
+            return strings.get(index - 1);
+        }
+
+        private int readVarInt() throws IOException {
+            int value = 0;
+            for (int shift = 0; shift < 35; shift += 7) {
+                int b = in.readUnsignedByte();
+                value |= (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return value;
+                }
+            }
+            throw new IOException("Corrupt placement trace: varint too long");
+        }
+    }
+}
@@ -0,0 +1,230 @@
+package net.claustra01.tfcspells.trace;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.annotation.Nullable;
+import net.claustra01.tfcspells.TfcSpells;
+import net.claustra01.tfcspells.TfcSpellsConfig;
+import net.claustra01.tfcspells.world.processor.BenchPlacements;
+import net.claustra01.tfcspells.world.processor.TfcBlockReplacementProcessor;
+import net.minecraft.core.BlockPos;
+import net.minecraft.core.registries.BuiltInRegistries;
+import net.minecraft.resources.ResourceLocation;
+import net.minecraft.world.level.ServerLevelAccessor;
+import net.neoforged.fml.loading.FMLPaths;
+import net.neoforged.neoforge.event.server.ServerStartedEvent;
+import net.neoforged.neoforge.event.server.ServerStoppingEvent;
+
+/**
+ * Records Iron's template placements to a {@link PlacementTrace} while {@link TfcSpellsConfig#TRACE_ENABLED} is set.
+ *
+ * <p>{@link #begin} runs before the template is placed and snapshots the column the rock and soil probes will read
+ * (placement overwrites it). {@link #end} adds the context the processor resolved and hands the record to a background
+ * writer thread, so worldgen threads never touch the file. If the writer falls behind, records are dropped and counted
+ * rather than stalling worldgen.</p>
+ *
+ * <p>Once the server starts stopping, nothing more is recorded until the next server start, so a placement that
+ * finishes late can't start a second writer. A writer never truncates an existing trace: if the configured file
+ * exists, it writes to a timestamped file next to it.</p>
+ */
+public final class TraceRecorder {
+    private static final int QUEUE_CAPACITY = 8192;
+    private static final long FLUSH_INTERVAL_MILLIS = 1000L;
+    private static final DateTimeFormatter FILE_TIMESTAMP = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+
+    private static final ThreadLocal<Pending> PENDING = new ThreadLocal<>();
+    private static final BlockingQueue<PlacementTrace.Entry> QUEUE = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+    private static final AtomicLong DROPPED = new AtomicLong();
+    private static final Object LOCK = new Object();
+
+    private static volatile @Nullable Thread writerThread;
+    private static volatile boolean stopping;
+
+    private TraceRecorder() {}
+
+    /** Placement in progress on this thread. Nested placements keep a link to the outer one. */
+    private static final class Pending {
+        final @Nullable Pending parent;
+        final String templateId;
+        final String dimension;
+        final BlockPos offset;
+        final int minBuildHeight;
+        final List<String> column;
+        int paletteIndex = -1;
+
+        Pending(@Nullable Pending parent, String templateId, String dimension, BlockPos offset, int minBuildHeight,
+                List<String> column) {
+            this.parent = parent;
+            this.templateId = templateId;
+            this.dimension = dimension;
+            this.offset = offset;
+            this.minBuildHeight = minBuildHeight;
+            this.column = column;
+        }
+    }
+
+    /**
+     * Starts recording a placement on this thread.
+     *
+     * @return whether a record was pushed; pass it to the matching {@link #end}
+     */
+    public static boolean begin(ResourceLocation templateId, ServerLevelAccessor level, BlockPos offset) {
+        // Bench placements aren't worldgen and would replay against the bench's artificial floor.
+        if (stopping || BenchPlacements.isActive() || !TfcSpellsConfig.TRACE_ENABLED.get()) {
+            return false;
+        }
+
+        int minY = level.getMinBuildHeight();
+        List<String> column = new ArrayList<>(TfcBlockReplacementProcessor.PROBE_DEPTH);
+        BlockPos.MutableBlockPos cursor = offset.mutable();
+        for (int i = 0; i < TfcBlockReplacementProcessor.PROBE_DEPTH && cursor.getY() >= minY; i++) {
+            column.add(BuiltInRegistries.BLOCK.getKey(level.getBlockState(cursor).getBlock()).toString());
+            cursor.move(0, -1, 0);
+        }
+
+        PENDING.set(new Pending(
+                PENDING.get(),
+                templateId.toString(),
+                level.getLevel().dimension().location().toString(),
+                offset.immutable(),
+                minY,
+                column));
+        return true;
+    }
+
+    public static void palette(int paletteIndex) {
+        Pending pending = PENDING.get();
+        if (pending != null) {
+            pending.paletteIndex = paletteIndex;
+        }
+    }
+
+    /**
+     * Pops the record pushed by the matching {@link #begin}, if it pushed one, and queues it if the placement
+     * completed. Must run even if placement threw, so the thread doesn't keep a stale record.
+     */
+    public static void end(boolean pushed, boolean completed) {
+        if (!pushed) {
+            return;
+        }
+        Pending pending = PENDING.get();
+        if (pending == null) {
+            return;
+        }
+        if (pending.parent == null) {
+            PENDING.remove();
+        } else {
+            PENDING.set(pending.parent);
+        }
+        if (!completed || stopping) {
+            return;
+        }
+
+        TfcBlockReplacementProcessor.ResolvedContext context =
+                TfcBlockReplacementProcessor.cachedContext(pending.offset);
+        PlacementTrace.Entry entry = new PlacementTrace.Entry(
+                pending.templateId,
+                pending.dimension,
+                pending.offset.getX(),
+                pending.offset.getY(),
+                pending.offset.getZ(),
+                pending.paletteIndex,
+                context.rock(),
+                context.soil(),
+                context.wood(),
+                context.indexed(),
+                pending.minBuildHeight,
+                pending.column);
+
+        ensureWriter();
+        if (!QUEUE.offer(entry)) {
+            DROPPED.incrementAndGet();
+        }
+    }
+
+    public static void onServerStarted(ServerStartedEvent event) {
+        synchronized (LOCK) {
+            stopping = false;
+        }
+    }
+
+    public static void onServerStopping(ServerStoppingEvent event) {
+        Thread thread;
+        synchronized (LOCK) {
+            stopping = true;
+            thread = writerThread;
+            if (thread == null) {
+                return;
+            }
+        }
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        synchronized (LOCK) {
+            writerThread = null;
+            // Anything queued after the writer's last poll belongs to this server and is not written.
+            QUEUE.clear();
+        }
+    }
+
+    private static void ensureWriter() {
+        if (writerThread != null) {
+            return;
+        }
+        synchronized (LOCK) {
+            if (writerThread != null || stopping) {
+                return;
+            }
+            Path file = traceFile(FMLPaths.GAMEDIR.get().resolve(TfcSpellsConfig.TRACE_FILE.get()));
+            Thread thread = new Thread(() -> writeLoop(file), "tfcspells-trace-writer");
+            thread.setDaemon(true);
+            thread.start();
+            writerThread = thread;
+        }
+    }
+
+    /** Returns {@code configured}, or a timestamped sibling if it already exists. */
+    private static Path traceFile(Path configured) {
+        if (!Files.exists(configured)) {
+            return configured;
+        }
+        String name = configured.getFileName().toString();
+        int dot = name.indexOf('.');
+        String stamp = "-" + LocalDateTime.now().format(FILE_TIMESTAMP);
+        String stamped = dot < 0 ? name + stamp : name.substring(0, dot) + stamp + name.substring(dot);
+        return configured.resolveSibling(stamped);
+    }
+
+    private static void writeLoop(Path file) {
+        long written = 0;
+        try (PlacementTrace.Writer writer = new PlacementTrace.Writer(file)) {
+            TfcSpells.LOGGER.info("Recording placement trace to {}", file);
+            while (!stopping || !QUEUE.isEmpty()) {
+                PlacementTrace.Entry entry = QUEUE.poll(FLUSH_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+                if (entry == null) {
+                    writer.flush();
+                    continue;
+                }
+                writer.write(entry);
+                written++;
+            }
+        } catch (IOException e) {
+            TfcSpells.LOGGER.error("Failed to write placement trace {}", file, e);
+            QUEUE.clear();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        TfcSpells.LOGGER.info("Placement trace {}: {} records written, {} dropped", file, written, DROPPED.get());
+    }
+}
@@ -0,0 +1,54 @@
+package net.claustra01.tfcspells.world;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import net.minecraft.core.registries.BuiltInRegistries;
+import net.minecraft.nbt.CompoundTag;
+import net.minecraft.resources.ResourceLocation;
+import net.minecraft.server.packs.resources.ResourceManager;
+import net.minecraft.world.level.levelgen.structure.templatesystem.StructureTemplate;
+
+/**
+ * Lists the Iron's Spellbooks structure templates available to a server, and makes processor-free copies of them.
+ *
+ * <p>Ids are returned in the form accepted by
+ * {@link net.minecraft.world.level.levelgen.structure.templatesystem.StructureTemplateManager#getOrCreate}, sorted so
+ * tooling sees a stable order.</p>
+ */
+public final class IronsStructureTemplates {
+    public static final String NAMESPACE = "irons_spellbooks";
+
+    private static final String STRUCTURE_DIR = "structure/";
+    private static final String STRUCTURE_EXT = ".nbt";
+
+    private IronsStructureTemplates() {}
+
+    public static List<ResourceLocation> list(ResourceManager resourceManager) {
+        Set<ResourceLocation> files = new TreeSet<>(
+                resourceManager
+                        .listResources(
+                                "structure",
+                                id -> NAMESPACE.equals(id.getNamespace()) && id.getPath().endsWith(STRUCTURE_EXT))
+                        .keySet());
+
+        List<ResourceLocation> ids = new ArrayList<>(files.size());
+        for (ResourceLocation file : files) {
+            String path = file.getPath();
+            ids.add(ResourceLocation.fromNamespaceAndPath(
+                    file.getNamespace(),
+                    path.substring(STRUCTURE_DIR.length(), path.length() - STRUCTURE_EXT.length())));
+        }
+        return ids;
+    }
+
+    /**
+     * Copies the template without its id, so {@code StructureTemplateMixin} doesn't append the replacement processor.
+     */
+    public static StructureTemplate untagged(StructureTemplate template) {
+        StructureTemplate copy = new StructureTemplate();
+        copy.load(BuiltInRegistries.BLOCK.asLookup(), template.save(new CompoundTag()));
+        return copy;
+    }
+}
@@ -0,0 +1,77 @@
+package net.claustra01.tfcspells.world;
+
+import net.minecraft.core.BlockPos;
+import net.minecraft.core.registries.BuiltInRegistries;
+import net.minecraft.resources.ResourceLocation;
+import net.minecraft.server.level.ServerLevel;
+import net.minecraft.world.entity.Entity;
+import net.minecraft.world.entity.player.Player;
+import net.minecraft.world.level.block.Block;
+import net.minecraft.world.level.block.Blocks;
+import net.minecraft.world.level.block.state.BlockState;
+import net.minecraft.world.level.levelgen.structure.BoundingBox;
+import net.minecraft.world.phys.AABB;
+
+/**
+ * The TFC ground placement tooling builds templates on: {@link #SOIL_DEPTH} layers of soil over {@link #ROCK_DEPTH}
+ * layers of raw rock, loam over granite unless a caller picks otherwise.
+ *
+ * <p>Shared by the placement game tests, {@code /tfcspells bench} and the JMH block getter, so the rock and soil
+ * probes see the same ground everywhere.</p>
+ */
+public final class TfcGround {
+    public static final int SOIL_DEPTH = 4;
+    public static final int ROCK_DEPTH = 8;
+    public static final String SOIL = "loam";
+    public static final String ROCK = "granite";
+
+    private static final String NS_TFC = "tfc";
+
+    private TfcGround() {}
+
+    /** {@code tfc:dirt/<name>}; fails if TFC doesn't register it. */
+    public static BlockState soil(String name) {
+        return tfcBlock("dirt/" + name);
+    }
+
+    /** {@code tfc:rock/raw/<name>}; fails if TFC doesn't register it. */
+    public static BlockState rock(String name) {
+        return tfcBlock("rock/raw/" + name);
+    }
+
+    private static BlockState tfcBlock(String path) {
+        ResourceLocation id = ResourceLocation.fromNamespaceAndPath(NS_TFC, path);
+        return BuiltInRegistries.BLOCK.getOptional(id)
+                .orElseThrow(() -> new IllegalStateException("Missing TFC block " + id))
+                .defaultBlockState();
+    }
+
+    /** Returns {@code box} extended down to include the ground below {@code surfaceY}. */
+    public static BoundingBox withGround(BoundingBox box, int surfaceY) {
+        int minY = Math.min(box.minY(), surfaceY - SOIL_DEPTH - ROCK_DEPTH);
+        return new BoundingBox(box.minX(), minY, box.minZ(), box.maxX(), box.maxY(), box.maxZ());
+    }
+
+    /** Lays loam over granite under the columns of {@code box}, with its top layer just below {@code surfaceY}. */
+    public static void prepare(ServerLevel level, BoundingBox box, int surfaceY) {
+        BlockState soil = soil(SOIL);
+        BlockState rock = rock(ROCK);
+        for (BlockPos pos : BlockPos.betweenClosed(
+                box.minX(), surfaceY - SOIL_DEPTH - ROCK_DEPTH, box.minZ(), box.maxX(), surfaceY - 1, box.maxZ())) {
+            level.setBlock(pos, pos.getY() >= surfaceY - SOIL_DEPTH ? soil : rock, Block.UPDATE_CLIENTS);
+        }
+    }
+
+    /** Sets {@code box} to air and discards every non-player entity in or next to it. */
+    public static void clear(ServerLevel level, BoundingBox box) {
+        BlockState air = Blocks.AIR.defaultBlockState();
+        for (BlockPos pos : BlockPos.betweenClosed(
+                box.minX(), box.minY(), box.minZ(), box.maxX(), box.maxY(), box.maxZ())) {
+            level.setBlock(pos, air, Block.UPDATE_CLIENTS | Block.UPDATE_KNOWN_SHAPE);
+        }
+        for (Entity entity : level.getEntitiesOfClass(Entity.class, AABB.of(box).inflate(1.0),
+                e -> !(e instanceof Player))) {
+            entity.discard();
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package net.claustra01.tfcspells.world.processor;
+
+/**
+ * Marks placements on the current thread as synthetic (a bench run) rather than real worldgen.
+ *
+ * <p>Marked placements are kept out of {@link ReplacementMetrics}, the {@link ContextIndex} and placement traces, so
+ * benching doesn't skew what they report. This is independent of {@link PlacementPhases}: a bench times its placements
+ * without a recorder and records phases in separate passes.</p>
+ */
+public final class BenchPlacements {
+    private static final ThreadLocal<Boolean> ACTIVE = new ThreadLocal<>();
+
+    private BenchPlacements() {}
+
+    /** Marks placements on the calling thread until {@link #exit}. */
+    public static void enter() {
+        ACTIVE.set(Boolean.TRUE);
+    }
+
+    public static void exit() {
+        ACTIVE.remove();
+    }
+
+    public static boolean isActive() {
+        return ACTIVE.get() != null;
+    }
+}
@@ -0,0 +1,170 @@
+package net.claustra01.tfcspells.world.processor;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import javax.annotation.Nullable;
+import net.claustra01.tfcspells.TfcSpellsConfig;
+import net.minecraft.core.BlockPos;
+import net.minecraft.resources.ResourceLocation;
+import net.neoforged.neoforge.event.server.ServerStoppingEvent;
+
+/**
+ * Per-dimension spatial index of probed rock and soil types, shared by all worldgen threads.
+ *
+ * <p>The world is split into 64x64 cells in 32-block Y bands. A cell remembers the value probed inside it and how many
+ * distinct origins agreed on it, or that two probes inside it disagreed (a border cell). A new placement origin reuses
+ * its cell's value only if it is confident: the cell isn't a border, none of its eight horizontal neighbours is a
+ * border or holds a different value, and at least {@link #MIN_AGREEING_PROBES} probes agree, counting the cell's own
+ * and those of neighbours holding the same value. Missing or expired neighbours are unknown and count for nothing, so a
+ * lone probe never decides for its cell. Otherwise the origin is probed as usual and the result goes back into the
+ * index.</p>
+ *
+ * <p>Only probe results are indexed, never defaults. Cells expire after
+ * {@link TfcSpellsConfig#CONTEXT_INDEX_TTL_SECONDS}; a dimension holding more than {@link #MAX_CELLS} cells first drops
+ * expired ones and is cleared if that isn't enough. Both indexes are cleared when the server stops, since dimension ids
+ * repeat across worlds (the next world opened on an integrated server is a different {@code minecraft:overworld}).</p>
+ */
+public final class ContextIndex {
+    private static final int CELL_SHIFT = 6;
+    private static final int BAND_SHIFT = 5;
+    private static final int MAX_CELLS = 16384;
+    private static final int MIN_AGREEING_PROBES = 2;
+
+    public static final ContextIndex ROCK = new ContextIndex();
+    public static final ContextIndex SOIL = new ContextIndex();
+
+    private final Map<ResourceLocation, ConcurrentHashMap<Long, Cell>> byDimension = new ConcurrentHashMap<>();
+    private final LongAdder reused = new LongAdder();
+    private final LongAdder unknown = new LongAdder();
+    private final LongAdder border = new LongAdder();
+
+    /**
+     * @param probes distinct origins that probed {@code value} in this cell (only the last origin is kept, so repeated
+     *     probes at one origin count once)
+     */
+    private record Cell(String value, boolean border, int probes, long lastOrigin, long stampNanos) {}
+
+    /**
+     * @param reused lookups answered from the index
+     * @param unknown lookups that had to probe because the cell was empty or expired, or too few probes agreed
+     * @param border lookups that had to probe because the cell or a neighbour disagreed
+     * @param cells live cells across all dimensions
+     */
+    public record Stats(long reused, long unknown, long border, int cells) {}
+
+    private ContextIndex() {}
+
+    static boolean enabled() {
+        return TfcSpellsConfig.CONTEXT_INDEX_ENABLED.get();
+    }
+
+    /**
+     * Returns the value to reuse for a placement at {@code origin}, or null if the origin should be probed.
+     */
+    @Nullable String lookup(ResourceLocation dimension, BlockPos origin) {
+        ConcurrentHashMap<Long, Cell> cells = byDimension.get(dimension);
+        if (cells == null) {
+            unknown.increment();
+            return null;
+        }
+
+        long now = System.nanoTime();
+        long ttl = ttlNanos();
+        int cx = origin.getX() >> CELL_SHIFT;
+        int band = origin.getY() >> BAND_SHIFT;
+        int cz = origin.getZ() >> CELL_SHIFT;
+
+        Cell own = fresh(cells.get(BlockPos.asLong(cx, band, cz)), now, ttl);
+        if (own == null) {
+            unknown.increment();
+            return null;
+        }
+        if (own.border()) {
+            border.increment();
+            return null;
+        }
+        int agreeing = own.probes();
+        for (int dx = -1; dx <= 1; dx++) {
+            for (int dz = -1; dz <= 1; dz++) {
+                if (dx == 0 && dz == 0) {
+                    continue;
+                }
+                Cell neighbour = fresh(cells.get(BlockPos.asLong(cx + dx, band, cz + dz)), now, ttl);
+                if (neighbour == null) {
+                    continue;
+                }
+                if (neighbour.border() || !neighbour.value().equals(own.value())) {
+                    border.increment();
+                    return null;
+                }
+                agreeing += neighbour.probes();
+            }
+        }
+        if (agreeing < MIN_AGREEING_PROBES) {
+            unknown.increment();
+            return null;
+        }
+        reused.increment();
+        return own.value();
+    }
+
+    /** Records a value found by probing at {@code origin}. */
+    void record(ResourceLocation dimension, BlockPos origin, String value) {
+        ConcurrentHashMap<Long, Cell> cells = byDimension.computeIfAbsent(dimension, k -> new ConcurrentHashMap<>());
+        long now = System.nanoTime();
+        long ttl = ttlNanos();
+        if (cells.size() >= MAX_CELLS) {
+            cells.values().removeIf(cell -> fresh(cell, now, ttl) == null);
+            if (cells.size() >= MAX_CELLS) {
+                cells.clear();
+            }
+        }
+
+        long key = BlockPos.asLong(
+                origin.getX() >> CELL_SHIFT, origin.getY() >> BAND_SHIFT, origin.getZ() >> CELL_SHIFT);
+        long originKey = origin.asLong();
+        cells.compute(key, (k, old) -> {
+            Cell current = fresh(old, now, ttl);
+            if (current == null) {
+                return new Cell(value, false, 1, originKey, now);
+            }
+            if (current.border() || !current.value().equals(value)) {
+                return new Cell(current.value(), true, 0, originKey, now);
+            }
+            int probes = current.lastOrigin() == originKey ? current.probes() : current.probes() + 1;
+            return new Cell(value, false, probes, originKey, now);
+        });
+    }
+
+    public static void onServerStopping(ServerStoppingEvent event) {
+        ROCK.clear();
+        SOIL.clear();
+    }
+
+    /** Drops every indexed cell; counters are kept. */
+    public void clear() {
+        byDimension.clear();
+    }
+
+    public Stats stats() {
+        int cells = byDimension.values().stream().mapToInt(Map::size).sum();
+        return new Stats(reused.sum(), unknown.sum(), border.sum(), cells);
+    }
+
+    /** Zeroes the counters; indexed cells are kept. */
+    public void resetStats() {
+        reused.reset();
+        unknown.reset();
+        border.reset();
+    }
+
+    private static long ttlNanos() {
+        return TimeUnit.SECONDS.toNanos(TfcSpellsConfig.CONTEXT_INDEX_TTL_SECONDS.get());
+    }
+
+    private static @Nullable Cell fresh(@Nullable Cell cell, long now, long ttl) {
+        return cell != null && now - cell.stampNanos() <= ttl ? cell : null;
+    }
+}
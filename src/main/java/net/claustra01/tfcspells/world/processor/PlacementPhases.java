@@ -0,0 +1,69 @@
+package net.claustra01.tfcspells.world.processor;
+
+import javax.annotation.Nullable;
+
+/**
+ * Per-phase time spent in {@link TfcBlockReplacementProcessor} on one thread, for on-demand profiling.
+ *
+ * <p>Nothing is measured unless a caller has {@link #start started} a recorder on the current thread, so normal
+ * worldgen only pays for a thread-local read per block. The laps add {@code nanoTime} calls of their own, so placements
+ * under a recorder shouldn't also be wall-timed.</p>
+ */
+public final class PlacementPhases {
+    public enum Phase {
+        /** Deciding whether a block is a replaceable vanilla block at all. */
+        CLASSIFICATION,
+        /** Resolving rock, soil and wood for the placement origin (cache lookups and ground probes). */
+        CONTEXT,
+        /** Mapping the vanilla state to its TFC replacement. */
+        MAPPING,
+        /** Rewriting entity NBT. */
+        ENTITIES
+    }
+
+    private static final ThreadLocal<PlacementPhases> ACTIVE = new ThreadLocal<>();
+
+    private final long[] nanos = new long[Phase.values().length];
+    private long mark;
+
+    private PlacementPhases() {}
+
+    /** Starts recording on the calling thread until {@link #stop}. */
+    public static PlacementPhases start() {
+        PlacementPhases phases = new PlacementPhases();
+        ACTIVE.set(phases);
+        return phases;
+    }
+
+    /** Records into this recorder again on the calling thread, until {@link #stop}. */
+    public void resume() {
+        ACTIVE.set(this);
+    }
+
+    public static void stop() {
+        ACTIVE.remove();
+    }
+
+    static @Nullable PlacementPhases active() {
+        return ACTIVE.get();
+    }
+
+    void begin() {
+        mark = System.nanoTime();
+    }
+
+    /** Charges the time since the last {@link #begin} or lap to {@code phase}. */
+    void lap(Phase phase) {
+        long now = System.nanoTime();
+        nanos[phase.ordinal()] += now - mark;
+        mark = now;
+    }
+
+    void add(Phase phase, long elapsed) {
+        nanos[phase.ordinal()] += elapsed;
+    }
+
+    public long nanos(Phase phase) {
+        return nanos[phase.ordinal()];
+    }
+}
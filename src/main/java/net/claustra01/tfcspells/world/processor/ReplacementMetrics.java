@@ -0,0 +1,422 @@
+package net.claustra01.tfcspells.world.processor;
+
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import javax.annotation.Nullable;
+import javax.management.JMException;
+import javax.management.ObjectName;
+import javax.management.StandardMBean;
+import net.claustra01.tfcspells.TfcSpells;
+import net.minecraft.resources.ResourceLocation;
+
+/**
+ * Counters for {@link TfcBlockReplacementProcessor}, kept per template id and per dimension.
+ *
+ * <p>All counters are {@link LongAdder}s, so recording is contention-free across worldgen threads; reads sum them and
+ * are only approximately consistent while placement is running. Totals are the sum over dimensions. Exposed through
+ * {@code /tfcspells stats} and the {@link ReplacementMetricsMXBean}.</p>
+ */
+public final class ReplacementMetrics {
+    public static final ResourceLocation UNKNOWN = ResourceLocation.fromNamespaceAndPath(TfcSpells.MOD_ID, "unknown");
+
+    private static final String MBEAN_NAME = "net.claustra01.tfcspells:type=ReplacementMetrics";
+    private static final long UNMAPPED_LOG_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(10);
+
+    private static final Map<ResourceLocation, Counters> BY_TEMPLATE = new ConcurrentHashMap<>();
+    private static final Map<ResourceLocation, Counters> BY_DIMENSION = new ConcurrentHashMap<>();
+    private static final Map<String, LongAdder> UNMAPPED = new ConcurrentHashMap<>();
+    private static final ThreadLocal<Sink> LAST_SINK = new ThreadLocal<>();
+    // Bench placements record here: the counters exist but are never read.
+    private static final Sink DISCARD = new Sink(UNKNOWN, UNKNOWN, new Counters(), new Counters());
+
+    private static final AtomicLong nextUnmappedLog = new AtomicLong(System.nanoTime());
+    private static final AtomicLong suppressedUnmapped = new AtomicLong();
+
+    /** Why a block was left as-is. */
+    public enum Skip {
+        AIR,
+        NON_MINECRAFT,
+        EXCLUDED_FAMILY,
+        UNMAPPED
+    }
+
+    private ReplacementMetrics() {}
+
+    /**
+     * Registers the {@link ReplacementMetricsMXBean} with the platform MBean server. Failures are logged, not thrown.
+     */
+    public static void registerMBean() {
+        try {
+            ObjectName name = new ObjectName(MBEAN_NAME);
+            var server = ManagementFactory.getPlatformMBeanServer();
+            if (!server.isRegistered(name)) {
+                server.registerMBean(new StandardMBean(new JmxView(), ReplacementMetricsMXBean.class, true), name);
+            }
+        } catch (JMException e) {
+            TfcSpells.LOGGER.warn("Failed to register {}", MBEAN_NAME, e);
+        }
+    }
+
+    /**
+     * Returns the recorder for a template/dimension pair. The last pair is cached per thread, since a thread processes
+     * all blocks of a placement in a row. {@link BenchPlacements} get a sink that isn't counted anywhere.
+     */
+    static Sink sink(@Nullable ResourceLocation template, @Nullable ResourceLocation dimension) {
+        if (BenchPlacements.isActive()) {
+            return DISCARD;
+        }
+        ResourceLocation t = template != null ? template : UNKNOWN;
+        ResourceLocation d = dimension != null ? dimension : UNKNOWN;
+        Sink last = LAST_SINK.get();
+        if (last != null && last.template == t && last.dimension == d) {
+            return last;
+        }
+        Sink sink = new Sink(
+                t,
+                d,
+                BY_TEMPLATE.computeIfAbsent(t, k -> new Counters()),
+                BY_DIMENSION.computeIfAbsent(d, k -> new Counters()));
+        LAST_SINK.set(sink);
+        return sink;
+    }
+
+    /**
+     * Counts a vanilla block id with no TFC mapping. The first sighting of each id is logged, but no more than one line
+     * every 10 seconds; ids that hit the limit are only counted (and show up in {@link #unmappedBlocks()}).
+     */
+    static void unmapped(String vanillaPath) {
+        LongAdder count = UNMAPPED.get(vanillaPath);
+        if (count == null) {
+            LongAdder created = new LongAdder();
+            count = UNMAPPED.putIfAbsent(vanillaPath, created);
+            if (count == null) {
+                count = created;
+                logUnmapped(vanillaPath);
+            }
+        }
+        count.increment();
+    }
+
+    private static void logUnmapped(String vanillaPath) {
+        long now = System.nanoTime();
+        long next = nextUnmappedLog.get();
+        if (now - next < 0 || !nextUnmappedLog.compareAndSet(next, now + UNMAPPED_LOG_INTERVAL_NANOS)) {
+            suppressedUnmapped.incrementAndGet();
+            return;
+        }
+        long suppressed = suppressedUnmapped.getAndSet(0);
+        if (suppressed > 0) {
+            TfcSpells.LOGGER.info(
+                    "No TFC replacement for minecraft:{} (and {} more new ids, see /tfcspells stats)",
+                    vanillaPath,
+                    suppressed);
+        } else {
+            TfcSpells.LOGGER.info("No TFC replacement for minecraft:{}", vanillaPath);
+        }
+    }
+
+    public static Snapshot total() {
+        Snapshot total = Snapshot.EMPTY;
+        for (Counters counters : BY_DIMENSION.values()) {
+            total = total.plus(counters.snapshot());
+        }
+        return total;
+    }
+
+    public static Map<ResourceLocation, Snapshot> byTemplate() {
+        return snapshot(BY_TEMPLATE);
+    }
+
+    public static Map<ResourceLocation, Snapshot> byDimension() {
+        return snapshot(BY_DIMENSION);
+    }
+
+    public static Map<String, Long> unmappedBlocks() {
+        Map<String, Long> out = new TreeMap<>();
+        UNMAPPED.forEach((id, count) -> out.put(id, count.sum()));
+        return out;
+    }
+
+    public static void reset() {
+        BY_TEMPLATE.values().forEach(Counters::reset);
+        BY_DIMENSION.values().forEach(Counters::reset);
+        UNMAPPED.values().forEach(LongAdder::reset);
+    }
+
+    private static Map<ResourceLocation, Snapshot> snapshot(Map<ResourceLocation, Counters> counters) {
+        Map<ResourceLocation, Snapshot> out = new TreeMap<>();
+        counters.forEach((id, c) -> out.put(id, c.snapshot()));
+        return out;
+    }
+
+    /** Records into both the template's and the dimension's counters. */
+    static final class Sink {
+        private final ResourceLocation template;
+        private final ResourceLocation dimension;
+        private final Counters byTemplate;
+        private final Counters byDimension;
+
+        private Sink(ResourceLocation template, ResourceLocation dimension, Counters byTemplate, Counters byDimension) {
+            this.template = template;
+            this.dimension = dimension;
+            this.byTemplate = byTemplate;
+            this.byDimension = byDimension;
+        }
+
+        void blockSeen() {
+            byTemplate.blocksSeen.increment();
+            byDimension.blocksSeen.increment();
+        }
+
+        void blockReplaced() {
+            byTemplate.blocksReplaced.increment();
+            byDimension.blocksReplaced.increment();
+        }
+
+        void skipped(Skip reason) {
+            byTemplate.skipped[reason.ordinal()].increment();
+            byDimension.skipped[reason.ordinal()].increment();
+        }
+
+        void probe(int depth) {
+            byTemplate.probes.increment();
+            byDimension.probes.increment();
+            byTemplate.probeDepth.add(depth);
+            byDimension.probeDepth.add(depth);
+        }
+
+        void cacheHit() {
+            byTemplate.cacheHits.increment();
+            byDimension.cacheHits.increment();
+        }
+
+        void cacheMiss() {
+            byTemplate.cacheMisses.increment();
+            byDimension.cacheMisses.increment();
+        }
+
+        void cacheEvicted(int entries) {
+            byTemplate.cacheEvictions.add(entries);
+            byDimension.cacheEvictions.add(entries);
+        }
+
+        void processNanos(long nanos) {
+            byTemplate.processNanos.add(nanos);
+            byDimension.processNanos.add(nanos);
+        }
+
+        void entity(boolean replaced, long nanos) {
+            byTemplate.entitiesSeen.increment();
+            byDimension.entitiesSeen.increment();
+            if (replaced) {
+                byTemplate.entitiesReplaced.increment();
+                byDimension.entitiesReplaced.increment();
+            }
+            byTemplate.processEntityNanos.add(nanos);
+            byDimension.processEntityNanos.add(nanos);
+        }
+    }
+
+    private static final class Counters {
+        final LongAdder blocksSeen = new LongAdder();
+        final LongAdder blocksReplaced = new LongAdder();
+        final LongAdder[] skipped = new LongAdder[Skip.values().length];
+        final LongAdder probes = new LongAdder();
+        final LongAdder probeDepth = new LongAdder();
+        final LongAdder cacheHits = new LongAdder();
+        final LongAdder cacheMisses = new LongAdder();
+        final LongAdder cacheEvictions = new LongAdder();
+        final LongAdder processNanos = new LongAdder();
+        final LongAdder entitiesSeen = new LongAdder();
+        final LongAdder entitiesReplaced = new LongAdder();
+        final LongAdder processEntityNanos = new LongAdder();
+
+        Counters() {
+            for (int i = 0; i < skipped.length; i++) {
+                skipped[i] = new LongAdder();
+            }
+        }
+
+        Snapshot snapshot() {
+            long[] skips = new long[skipped.length];
+            for (int i = 0; i < skips.length; i++) {
+                skips[i] = skipped[i].sum();
+            }
+            return new Snapshot(
+                    blocksSeen.sum(),
+                    blocksReplaced.sum(),
+                    skips,
+                    probes.sum(),
+                    probeDepth.sum(),
+                    cacheHits.sum(),
+                    cacheMisses.sum(),
+                    cacheEvictions.sum(),
+                    processNanos.sum(),
+                    entitiesSeen.sum(),
+                    entitiesReplaced.sum(),
+                    processEntityNanos.sum());
+        }
+
+        void reset() {
+            blocksSeen.reset();
+            blocksReplaced.reset();
+            for (LongAdder skip : skipped) {
+                skip.reset();
+            }
+            probes.reset();
+            probeDepth.reset();
+            cacheHits.reset();
+            cacheMisses.reset();
+            cacheEvictions.reset();
+            processNanos.reset();
+            entitiesSeen.reset();
+            entitiesReplaced.reset();
+            processEntityNanos.reset();
+        }
+    }
+
+    /** Point-in-time copy of a set of counters. {@code skipped} is indexed by {@link Skip#ordinal()}. */
+    public record Snapshot(
+            long blocksSeen,
+            long blocksReplaced,
+            long[] skipped,
+            long probes,
+            long probeDepth,
+            long cacheHits,
+            long cacheMisses,
+            long cacheEvictions,
+            long processNanos,
+            long entitiesSeen,
+            long entitiesReplaced,
+            long processEntityNanos) {
+        public static final Snapshot EMPTY =
+                new Snapshot(0, 0, new long[Skip.values().length], 0, 0, 0, 0, 0, 0, 0, 0, 0);
+
+        public long skipped(Skip reason) {
+            return skipped[reason.ordinal()];
+        }
+
+        public double cacheHitRate() {
+            long lookups = cacheHits + cacheMisses;
+            return lookups == 0 ? 0.0 : (double) cacheHits / lookups;
+        }
+
+        public double meanProbeDepth() {
+            return probes == 0 ? 0.0 : (double) probeDepth / probes;
+        }
+
+        public Snapshot plus(Snapshot other) {
+            return combine(other, 1);
+        }
+
+        public Snapshot minus(Snapshot other) {
+            return combine(other, -1);
+        }
+
+        private Snapshot combine(Snapshot other, int sign) {
+            long[] skips = new long[skipped.length];
+            for (int i = 0; i < skips.length; i++) {
+                skips[i] = skipped[i] + sign * other.skipped[i];
+            }
+            return new Snapshot(
+                    blocksSeen + sign * other.blocksSeen,
+                    blocksReplaced + sign * other.blocksReplaced,
+                    skips,
+                    probes + sign * other.probes,
+                    probeDepth + sign * other.probeDepth,
+                    cacheHits + sign * other.cacheHits,
+                    cacheMisses + sign * other.cacheMisses,
+                    cacheEvictions + sign * other.cacheEvictions,
+                    processNanos + sign * other.processNanos,
+                    entitiesSeen + sign * other.entitiesSeen,
+                    entitiesReplaced + sign * other.entitiesReplaced,
+                    processEntityNanos + sign * other.processEntityNanos);
+        }
+    }
+
+    private static final class JmxView implements ReplacementMetricsMXBean {
+        @Override
+        public long getBlocksSeen() {
+            return total().blocksSeen();
+        }
+
+        @Override
+        public long getBlocksReplaced() {
+            return total().blocksReplaced();
+        }
+
+        @Override
+        public Map<String, Long> getBlocksSkipped() {
+            Snapshot total = total();
+            Map<String, Long> out = new TreeMap<>();
+            for (Skip reason : Skip.values()) {
+                out.put(reason.name(), total.skipped(reason));
+            }
+            return out;
+        }
+
+        @Override
+        public long getProbes() {
+            return total().probes();
+        }
+
+        @Override
+        public double getMeanProbeDepth() {
+            return total().meanProbeDepth();
+        }
+
+        @Override
+        public long getCacheHits() {
+            return total().cacheHits();
+        }
+
+        @Override
+        public long getCacheMisses() {
+            return total().cacheMisses();
+        }
+
+        @Override
+        public long getCacheEvictions() {
+            return total().cacheEvictions();
+        }
+
+        @Override
+        public long getProcessNanos() {
+            return total().processNanos();
+        }
+
+        @Override
+        public long getProcessEntityNanos() {
+            return total().processEntityNanos();
+        }
+
+        @Override
+        public Map<String, Long> getProcessNanosByTemplate() {
+            Map<String, Long> out = new TreeMap<>();
+            byTemplate().forEach((id, s) -> out.put(id.toString(), s.processNanos()));
+            return out;
+        }
+
+        @Override
+        public Map<String, Long> getProcessNanosByDimension() {
+            Map<String, Long> out = new TreeMap<>();
+            byDimension().forEach((id, s) -> out.put(id.toString(), s.processNanos()));
+            return out;
+        }
+
+        @Override
+        public Map<String, Long> getUnmappedBlocks() {
+            return unmappedBlocks();
+        }
+
+        @Override
+        public void reset() {
+            ReplacementMetrics.reset();
+        }
+    }
+}
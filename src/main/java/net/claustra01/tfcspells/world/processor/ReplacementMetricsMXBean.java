@@ -0,0 +1,40 @@
+package net.claustra01.tfcspells.world.processor;
+
+import java.util.Map;
+
+/**
+ * JMX view of {@link ReplacementMetrics}, registered as {@code net.claustra01.tfcspells:type=ReplacementMetrics}.
+ *
+ * <p>Scalar attributes are totals over all dimensions.</p>
+ */
+public interface ReplacementMetricsMXBean {
+    long getBlocksSeen();
+
+    long getBlocksReplaced();
+
+    /** Skipped blocks keyed by {@link ReplacementMetrics.Skip} name. */
+    Map<String, Long> getBlocksSkipped();
+
+    long getProbes();
+
+    double getMeanProbeDepth();
+
+    long getCacheHits();
+
+    long getCacheMisses();
+
+    long getCacheEvictions();
+
+    long getProcessNanos();
+
+    long getProcessEntityNanos();
+
+    Map<String, Long> getProcessNanosByTemplate();
+
+    Map<String, Long> getProcessNanosByDimension();
+
+    /** Vanilla block paths with no TFC mapping, with how often each was seen. */
+    Map<String, Long> getUnmappedBlocks();
+
+    void reset();
+}
@@ -0,0 +1,95 @@
+package net.claustra01.tfcspells.world.processor;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+import javax.annotation.Nullable;
+import net.claustra01.tfcspells.TfcSpells;
+import net.claustra01.tfcspells.TfcSpellsConfig;
+import net.claustra01.tfcspells.world.processor.TfcBlockReplacementProcessor.ReplacementScope;
+import net.minecraft.core.BlockPos;
+import net.minecraft.core.registries.BuiltInRegistries;
+import net.minecraft.resources.ResourceLocation;
+import net.minecraft.world.level.block.state.BlockState;
+import net.minecraft.world.level.levelgen.structure.templatesystem.StructureTemplate;
+
+/**
+ * Shadow verification of the fast-path state mapping.
+ *
+ * <p>For a sample of blocks ({@link TfcSpellsConfig#MAPPING_SHADOW_SAMPLE_RATE}) the processor maps the block a second
+ * time with the original string mapper and hands both results here. Differences in output state or NBT are counted
+ * per vanilla block id; the first {@link #LOGGED_PER_BLOCK} of each are logged with the full placement context.</p>
+ */
+public final class ShadowVerifier {
+    private static final int LOGGED_PER_BLOCK = 3;
+
+    private static final LongAdder COMPARED = new LongAdder();
+    private static final Map<ResourceLocation, LongAdder> MISMATCHES = new ConcurrentHashMap<>();
+
+    private ShadowVerifier() {}
+
+    static boolean sample() {
+        double rate = TfcSpellsConfig.MAPPING_SHADOW_SAMPLE_RATE.get();
+        return rate > 0.0 && (rate >= 1.0 || ThreadLocalRandom.current().nextDouble() < rate);
+    }
+
+    static void compare(
+            @Nullable ResourceLocation templateId,
+            BlockPos offset,
+            BlockState in,
+            String rock,
+            String soil,
+            String wood,
+            ReplacementScope scope,
+            StructureTemplate.StructureBlockInfo fast,
+            StructureTemplate.StructureBlockInfo legacy) {
+        COMPARED.increment();
+        if (fast.state() == legacy.state() && Objects.equals(fast.nbt(), legacy.nbt())) {
+            return;
+        }
+
+        ResourceLocation id = BuiltInRegistries.BLOCK.getKey(in.getBlock());
+        LongAdder count = MISMATCHES.computeIfAbsent(id, k -> new LongAdder());
+        count.increment();
+        long seen = count.sum();
+        if (seen <= LOGGED_PER_BLOCK) {
+            TfcSpells.LOGGER.warn(
+                    "Fast-path mismatch #{} for {} in {} at {} (origin {}, scope {}, rock {}, soil {}, wood {}): "
+                            + "input {}, fast {} {}, legacy {} {}",
+                    seen,
+                    id,
+                    templateId,
+                    offset.offset(fast.pos()),
+                    offset,
+                    scope,
+                    rock,
+                    soil,
+                    wood,
+                    in,
+                    fast.state(),
+                    fast.nbt(),
+                    legacy.state(),
+                    legacy.nbt());
+        }
+    }
+
+    /** Number of fast-path results checked against the legacy mapper since start-up or the last {@link #reset}. */
+    public static long compared() {
+        return COMPARED.sum();
+    }
+
+    /** Mismatches per vanilla block id. */
+    public static Map<ResourceLocation, Long> mismatches() {
+        Map<ResourceLocation, Long> out = new TreeMap<>();
+        MISMATCHES.forEach((id, count) -> out.put(id, count.sum()));
+        return out;
+    }
+
+    public static void reset() {
+        COMPARED.reset();
+        MISMATCHES.clear();
+    }
+}
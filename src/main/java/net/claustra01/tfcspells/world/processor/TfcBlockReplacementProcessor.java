@@ -2,13 +2,20 @@ package net.claustra01.tfcspells.world.processor;
 
 import com.mojang.serialization.MapCodec;
 import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import javax.annotation.Nullable;
 import net.claustra01.tfcspells.ModStructureProcessors;
+import net.claustra01.tfcspells.TfcSpellsConfig;
+import net.claustra01.tfcspells.access.StructureTemplateIdAccess;
 import net.claustra01.tfcspells.access.StructureTemplatePalettesAccess;
+import net.claustra01.tfcspells.jfr.CacheEvictionEvent;
+import net.claustra01.tfcspells.jfr.ContextResolutionEvent;
+import net.claustra01.tfcspells.jfr.PlacementEvents;
 import net.minecraft.core.BlockPos;
 import net.minecraft.core.Direction;
 import net.minecraft.core.registries.BuiltInRegistries;
@@ -16,6 +23,7 @@ import net.minecraft.nbt.CompoundTag;
 import net.minecraft.nbt.ListTag;
 import net.minecraft.resources.ResourceLocation;
 import net.minecraft.server.level.ServerLevel;
+import net.minecraft.world.level.BlockGetter;
 import net.minecraft.world.level.Level;
 import net.minecraft.world.level.LevelReader;
 import net.minecraft.world.level.WorldGenLevel;
@@ -79,14 +87,44 @@ public final class TfcBlockReplacementProcessor extends StructureProcessor {
                     "cherry",
                     "bamboo");
 
+    /** How far below a placement origin the rock and soil probes look. */
+    public static final int PROBE_DEPTH = 64;
+
+    private static final int CACHE_LIMIT = 2048;
+    private static final int MAPPING_CACHE_LIMIT = 65536;
     private static final ThreadLocal<Long2ObjectOpenHashMap<String>> ROCK_CACHE =
             ThreadLocal.withInitial(Long2ObjectOpenHashMap::new);
     private static final ThreadLocal<Long2ObjectOpenHashMap<String>> SOIL_CACHE =
             ThreadLocal.withInitial(Long2ObjectOpenHashMap::new);
     private static final ThreadLocal<Long2ObjectOpenHashMap<String>> WOOD_CACHE =
             ThreadLocal.withInitial(Long2ObjectOpenHashMap::new);
+    // Origins whose rock or soil this thread took from the ContextIndex rather than probing.
+    private static final ThreadLocal<LongOpenHashSet> INDEXED_ORIGINS = ThreadLocal.withInitial(LongOpenHashSet::new);
+    // Fast path: input state + context -> output, shared across threads. Block states are interned, so identity
+    // equality on the key is what we want.
+    private static final ConcurrentHashMap<MappingKey, Mapping> MAPPING_CACHE = new ConcurrentHashMap<>();
+
+    private record MappingKey(BlockState in, String rock, String soil, String wood, ReplacementScope scope) {}
+
+    /** Result of mapping one input state. {@code state} is null for {@link #UNMAPPED}. */
+    private record Mapping(@Nullable BlockState state, boolean keepNbt) {
+        static final Mapping UNMAPPED = new Mapping(null, true);
+
+        StructureTemplate.StructureBlockInfo apply(StructureTemplate.StructureBlockInfo info) {
+            if (state == null) {
+                return info;
+            }
+            return new StructureTemplate.StructureBlockInfo(info.pos(), state, keepNbt ? info.nbt() : null);
+        }
+    }
 
-    private enum ReplacementScope {
+    /**
+     * How much of a template is rewritten.
+     *
+     * <p>{@link #FULL} is used in the overworld, where TFC replaces vanilla terrain. {@link #UTILITY_ONLY} is used in
+     * other dimensions and only converts functional blocks (chests, lights, metals, ...).</p>
+     */
+    public enum ReplacementScope {
         FULL,
         UTILITY_ONLY
     }
@@ -115,32 +153,179 @@ public final class TfcBlockReplacementProcessor extends StructureProcessor {
             scope = ReplacementScope.UTILITY_ONLY;
         }
 
-        BlockState in = processedBlockInfo.state();
-        Block inBlock = in.getBlock();
+        return processBlock(
+                level,
+                scope,
+                defaultRockFor(serverLevel),
+                dimensionOf(serverLevel),
+                offset,
+                processedBlockInfo,
+                settings,
+                template);
+    }
 
-        // Skip air quickly.
-        if (in.isAir()) {
-            return processedBlockInfo;
+    /**
+     * Same as {@link #process} but with the scope given explicitly instead of derived from the level's dimension.
+     *
+     * <p>Only {@link BlockGetter} access is needed for context probing, so benchmarks and tooling can run the
+     * processor against a lightweight block source instead of a live level. No dimension is known, so the
+     * {@link ContextIndex} isn't used.</p>
+     */
+    public @Nullable StructureTemplate.StructureBlockInfo processInScope(
+            BlockGetter level,
+            ReplacementScope scope,
+            BlockPos offset,
+            StructureTemplate.StructureBlockInfo blockInfo,
+            StructurePlaceSettings settings,
+            @Nullable StructureTemplate template) {
+        return processInScope(level, scope, null, offset, blockInfo, settings, template);
+    }
+
+    /**
+     * Same as {@link #processInScope(BlockGetter, ReplacementScope, BlockPos, StructureTemplate.StructureBlockInfo,
+     * StructurePlaceSettings, StructureTemplate)}, placing as if in {@code dimension}, so the {@link ContextIndex} is
+     * read and fed when it's enabled.
+     */
+    public @Nullable StructureTemplate.StructureBlockInfo processInScope(
+            BlockGetter level,
+            ReplacementScope scope,
+            @Nullable ResourceLocation dimension,
+            BlockPos offset,
+            StructureTemplate.StructureBlockInfo blockInfo,
+            StructurePlaceSettings settings,
+            @Nullable StructureTemplate template) {
+        return processBlock(level, scope, DEFAULT_ROCK_OVERWORLD, dimension, offset, blockInfo, settings, template);
+    }
+
+    /**
+     * Drops all cached per-placement context (rock, soil and wood hints) for the calling thread, and the shared
+     * fast-path state mapping.
+     */
+    public static void clearCaches() {
+        clearContextCaches();
+        MAPPING_CACHE.clear();
+    }
+
+    /**
+     * Drops the calling thread's cached per-placement context only, so the next placement at a known origin resolves
+     * it again.
+     */
+    public static void clearContextCaches() {
+        ROCK_CACHE.get().clear();
+        SOIL_CACHE.get().clear();
+        WOOD_CACHE.get().clear();
+        INDEXED_ORIGINS.get().clear();
+    }
+
+    /**
+     * Context resolved for one placement origin. A field is null when it hasn't been resolved on this thread, either
+     * because no block needed it yet or because the scope doesn't use it. {@code indexed} is set when rock or soil came
+     * from the {@link ContextIndex} instead of a probe.
+     */
+    public record ResolvedContext(
+            @Nullable String rock, @Nullable String soil, @Nullable String wood, boolean indexed) {}
+
+    /**
+     * Returns what the calling thread currently has cached for the placement origin {@code offset}.
+     */
+    public static ResolvedContext cachedContext(BlockPos offset) {
+        long key = offset.asLong();
+        return new ResolvedContext(ROCK_CACHE.get().get(key), SOIL_CACHE.get().get(key), WOOD_CACHE.get().get(key),
+                INDEXED_ORIGINS.get().contains(key));
+    }
+
+    private static Long2ObjectOpenHashMap<String> contextCache(
+            ThreadLocal<Long2ObjectOpenHashMap<String>> local, String kind, ReplacementMetrics.Sink metrics) {
+        Long2ObjectOpenHashMap<String> cache = local.get();
+        if (cache.size() > CACHE_LIMIT) {
+            metrics.cacheEvicted(cache.size());
+            CacheEvictionEvent event = new CacheEvictionEvent();
+            if (event.shouldCommit()) {
+                event.cache = kind;
+                event.entries = cache.size();
+                event.commit();
+            }
+            cache.clear();
         }
+        return cache;
+    }
 
-        ResourceLocation inId = BuiltInRegistries.BLOCK.getKey(inBlock);
-        if (!NS_MINECRAFT.equals(inId.getNamespace())) {
-            return processedBlockInfo;
+    private static void markIndexed(long cacheKey) {
+        LongOpenHashSet indexed = INDEXED_ORIGINS.get();
+        // Bounded like the context caches; an origin dropped here just reads as probed.
+        if (indexed.size() > CACHE_LIMIT) {
+            indexed.clear();
         }
+        indexed.add(cacheKey);
+    }
 
-        String path = inId.getPath();
-        if (shouldSkipReplacement(path)) {
-            return processedBlockInfo;
+    private static ContextResolutionEvent beginResolution(String kind) {
+        ContextResolutionEvent event = new ContextResolutionEvent();
+        event.kind = kind;
+        event.begin();
+        return event;
+    }
+
+    private static void commitResolution(
+            ContextResolutionEvent event, @Nullable StructureTemplate template, String value) {
+        event.end();
+        if (event.shouldCommit()) {
+            event.templateId = String.valueOf(templateIdOf(template));
+            event.value = value;
+            event.commit();
         }
-        if (path.startsWith("infested_")) {
-            path = path.substring("infested_".length());
+    }
+
+    private static @Nullable StructureTemplate.StructureBlockInfo processBlock(
+            BlockGetter level,
+            ReplacementScope scope,
+            String defaultRock,
+            @Nullable ResourceLocation dimension,
+            BlockPos offset,
+            StructureTemplate.StructureBlockInfo processedBlockInfo,
+            StructurePlaceSettings settings,
+            @Nullable StructureTemplate template) {
+        ReplacementMetrics.Sink metrics = ReplacementMetrics.sink(templateIdOf(template), dimension);
+        long start = System.nanoTime();
+        try {
+            StructureTemplate.StructureBlockInfo out =
+                    replaceBlock(
+                            level, scope, defaultRock, dimension, offset, processedBlockInfo, settings, template, metrics);
+            PlacementEvents.blockProcessed(out != processedBlockInfo);
+            return out;
+        } finally {
+            metrics.processNanos(System.nanoTime() - start);
         }
+    }
 
-        // Tall seagrass is a double-block plant. Replacing it with a single-block aquatic plant works best if the upper
-        // half becomes water (otherwise the "upper" plant block tends to pop off).
-        if ("tall_seagrass".equals(path)
-                && in.hasProperty(BlockStateProperties.DOUBLE_BLOCK_HALF)
-                && in.getValue(BlockStateProperties.DOUBLE_BLOCK_HALF) == DoubleBlockHalf.UPPER) {
+    private static @Nullable StructureTemplate.StructureBlockInfo replaceBlock(
+            BlockGetter level,
+            ReplacementScope scope,
+            String defaultRock,
+            @Nullable ResourceLocation dimension,
+            BlockPos offset,
+            StructureTemplate.StructureBlockInfo processedBlockInfo,
+            StructurePlaceSettings settings,
+            @Nullable StructureTemplate template,
+            ReplacementMetrics.Sink metrics) {
+        @Nullable PlacementPhases phases = PlacementPhases.active();
+        if (phases != null) {
+            phases.begin();
+        }
+
+        metrics.blockSeen();
+        BlockState in = processedBlockInfo.state();
+        @Nullable String path = replaceablePath(in, metrics);
+        boolean upperTallSeagrass = path != null && isUpperTallSeagrass(path, in);
+        if (phases != null) {
+            phases.lap(PlacementPhases.Phase.CLASSIFICATION);
+        }
+        if (path == null) {
+            return processedBlockInfo;
+        }
+
+        if (upperTallSeagrass) {
+            metrics.blockReplaced();
             return new StructureTemplate.StructureBlockInfo(
                     processedBlockInfo.pos(), Blocks.WATER.defaultBlockState(), processedBlockInfo.nbt());
         }
@@ -149,69 +334,214 @@ public final class TfcBlockReplacementProcessor extends StructureProcessor {
         long cacheKey = offset.asLong();
         String rock = DEFAULT_ROCK_OVERWORLD;
         String soil = DEFAULT_SOIL;
+        // Nearby placements can share ground context, but only when we know which dimension we're in. Bench placements
+        // neither read nor feed the index: their ground is artificial.
+        boolean useIndex = dimension != null && ContextIndex.enabled() && !BenchPlacements.isActive();
         if (scope == ReplacementScope.FULL) {
-            String defaultRock = defaultRockFor(serverLevel);
-
-            Long2ObjectOpenHashMap<String> rockCache = ROCK_CACHE.get();
-            if (rockCache.size() > 2048) {
-                rockCache.clear();
-            }
+            Long2ObjectOpenHashMap<String> rockCache = contextCache(ROCK_CACHE, "rock", metrics);
             String cachedRock = rockCache.get(cacheKey);
             if (cachedRock == null) {
-                cachedRock = findRockNameBelow(level, offset);
-                if (cachedRock == null) {
-                    cachedRock = defaultRock;
+                metrics.cacheMiss();
+                ContextResolutionEvent event = beginResolution("rock");
+                cachedRock = useIndex ? ContextIndex.ROCK.lookup(dimension, offset) : null;
+                if (cachedRock != null) {
+                    event.source = ContextResolutionEvent.SOURCE_INDEX;
+                    markIndexed(cacheKey);
+                } else {
+                    cachedRock = findRockNameBelow(level, offset, metrics, event);
+                    if (cachedRock == null) {
+                        cachedRock = defaultRock;
+                        event.source = ContextResolutionEvent.SOURCE_DEFAULT;
+                    } else if (useIndex) {
+                        ContextIndex.ROCK.record(dimension, offset, cachedRock);
+                    }
                 }
+                commitResolution(event, template, cachedRock);
                 rockCache.put(cacheKey, cachedRock);
+            } else {
+                metrics.cacheHit();
             }
             rock = cachedRock;
 
-            Long2ObjectOpenHashMap<String> soilCache = SOIL_CACHE.get();
-            if (soilCache.size() > 2048) {
-                soilCache.clear();
-            }
+            Long2ObjectOpenHashMap<String> soilCache = contextCache(SOIL_CACHE, "soil", metrics);
             String cachedSoil = soilCache.get(cacheKey);
             if (cachedSoil == null) {
-                cachedSoil = findSoilNameBelow(level, offset);
-                if (cachedSoil == null) {
-                    cachedSoil = DEFAULT_SOIL;
+                metrics.cacheMiss();
+                ContextResolutionEvent event = beginResolution("soil");
+                cachedSoil = useIndex ? ContextIndex.SOIL.lookup(dimension, offset) : null;
+                if (cachedSoil != null) {
+                    event.source = ContextResolutionEvent.SOURCE_INDEX;
+                    markIndexed(cacheKey);
+                } else {
+                    cachedSoil = findSoilNameBelow(level, offset, metrics, event);
+                    if (cachedSoil == null) {
+                        cachedSoil = DEFAULT_SOIL;
+                        event.source = ContextResolutionEvent.SOURCE_DEFAULT;
+                    } else if (useIndex) {
+                        ContextIndex.SOIL.record(dimension, offset, cachedSoil);
+                    }
                 }
+                commitResolution(event, template, cachedSoil);
                 soilCache.put(cacheKey, cachedSoil);
+            } else {
+                metrics.cacheHit();
             }
             soil = cachedSoil;
         }
 
-        Long2ObjectOpenHashMap<String> woodCache = WOOD_CACHE.get();
-        if (woodCache.size() > 2048) {
-            woodCache.clear();
-        }
+        Long2ObjectOpenHashMap<String> woodCache = contextCache(WOOD_CACHE, "wood", metrics);
         String woodHint = woodCache.get(cacheKey);
         if (woodHint == null) {
-            woodHint = resolveWoodHint(path, offset, settings, template);
+            metrics.cacheMiss();
+            ContextResolutionEvent event = beginResolution("wood");
+            woodHint = resolveWoodHint(path, offset, settings, template, event);
+            commitResolution(event, template, woodHint);
             woodCache.put(cacheKey, woodHint);
+        } else {
+            metrics.cacheHit();
         }
 
-        @Nullable ResourceLocation outId =
-                mapVanillaToTfc(path, rock, soil, woodHint, scope);
-        if (outId == null) {
+        if (phases != null) {
+            phases.lap(PlacementPhases.Phase.CONTEXT);
+        }
+
+        Mapping mapping;
+        if (TfcSpellsConfig.MAPPING_FAST_PATH.get()) {
+            MappingKey key = new MappingKey(in, rock, soil, woodHint, scope);
+            mapping = MAPPING_CACHE.get(key);
+            if (mapping == null) {
+                mapping = mapState(in, path, rock, soil, woodHint, scope);
+                if (MAPPING_CACHE.size() >= MAPPING_CACHE_LIMIT) {
+                    MAPPING_CACHE.clear();
+                }
+                MAPPING_CACHE.put(key, mapping);
+            } else if (ShadowVerifier.sample()) {
+                ShadowVerifier.compare(
+                        templateIdOf(template),
+                        offset,
+                        in,
+                        rock,
+                        soil,
+                        woodHint,
+                        scope,
+                        mapping.apply(processedBlockInfo),
+                        mapState(in, path, rock, soil, woodHint, scope).apply(processedBlockInfo));
+            }
+        } else {
+            mapping = mapState(in, path, rock, soil, woodHint, scope);
+        }
+        if (phases != null) {
+            phases.lap(PlacementPhases.Phase.MAPPING);
+        }
+
+        if (mapping == Mapping.UNMAPPED) {
+            recordUnmapped(metrics, path, scope);
             return processedBlockInfo;
         }
+        metrics.blockReplaced();
+        return mapping.apply(processedBlockInfo);
+    }
+
+    /**
+     * The original string-based mapping: resolves the TFC block id for {@code path} in the given context and copies
+     * the input's properties onto it by name. This is the reference the fast path is verified against.
+     */
+    private static Mapping mapState(
+            BlockState in, String path, String rock, String soil, String woodHint, ReplacementScope scope) {
+        @Nullable ResourceLocation outId = mapVanillaToTfc(path, rock, soil, woodHint, scope);
+        if (outId == null) {
+            return Mapping.UNMAPPED;
+        }
 
         Block outBlock = BuiltInRegistries.BLOCK.getOptional(outId).orElse(null);
         if (outBlock == null || outBlock == Blocks.AIR) {
-            return processedBlockInfo;
+            return Mapping.UNMAPPED;
         }
 
         BlockState out = copyPropertiesByName(in, outBlock.defaultBlockState());
-
-        CompoundTag outNbt = processedBlockInfo.nbt();
         if (TFC_FIREPIT.equals(outId)) {
-            out = applyFirepitAxisFromFacing(in, out);
             // Furnace/campfire block entity tags don't make sense on a firepit and can cause odd behavior.
-            outNbt = null;
+            return new Mapping(applyFirepitAxisFromFacing(in, out), false);
+        }
+        return new Mapping(out, true);
+    }
+
+    /**
+     * Returns the vanilla block path to map for {@code in} (with any {@code infested_} prefix removed), or null if the
+     * block is never replaced. The skip reason is recorded to {@code metrics} when given.
+     */
+    private static @Nullable String replaceablePath(BlockState in, @Nullable ReplacementMetrics.Sink metrics) {
+        // Skip air quickly.
+        if (in.isAir()) {
+            if (metrics != null) {
+                metrics.skipped(ReplacementMetrics.Skip.AIR);
+            }
+            return null;
         }
 
-        return new StructureTemplate.StructureBlockInfo(processedBlockInfo.pos(), out, outNbt);
+        ResourceLocation inId = BuiltInRegistries.BLOCK.getKey(in.getBlock());
+        if (!NS_MINECRAFT.equals(inId.getNamespace())) {
+            if (metrics != null) {
+                metrics.skipped(ReplacementMetrics.Skip.NON_MINECRAFT);
+            }
+            return null;
+        }
+
+        String path = inId.getPath();
+        if (shouldSkipReplacement(path)) {
+            if (metrics != null) {
+                metrics.skipped(ReplacementMetrics.Skip.EXCLUDED_FAMILY);
+            }
+            return null;
+        }
+        if (path.startsWith("infested_")) {
+            path = path.substring("infested_".length());
+        }
+        return path;
+    }
+
+    /**
+     * Tall seagrass is a double-block plant. Replacing it with a single-block aquatic plant works best if the upper half
+     * becomes water (otherwise the "upper" plant block tends to pop off).
+     */
+    private static boolean isUpperTallSeagrass(String path, BlockState in) {
+        return "tall_seagrass".equals(path)
+                && in.hasProperty(BlockStateProperties.DOUBLE_BLOCK_HALF)
+                && in.getValue(BlockStateProperties.DOUBLE_BLOCK_HALF) == DoubleBlockHalf.UPPER;
+    }
+
+    /**
+     * Result of {@link #convertState}. {@code state} is the input itself when the block is left alone; {@code unmapped}
+     * is set when it is a vanilla block the mapping has no TFC equivalent for.
+     */
+    public record Conversion(BlockState state, boolean keepNbt, boolean unmapped) {}
+
+    /**
+     * Maps one block state with a fixed rock/soil/wood context, using the same rules as placement but without probing a
+     * level. Meant for offline tooling such as converting templates on disk.
+     */
+    public static Conversion convertState(
+            BlockState in, String rock, String soil, String wood, ReplacementScope scope) {
+        @Nullable String path = replaceablePath(in, null);
+        if (path == null) {
+            return new Conversion(in, true, false);
+        }
+        if (isUpperTallSeagrass(path, in)) {
+            return new Conversion(Blocks.WATER.defaultBlockState(), true, false);
+        }
+        Mapping mapping = mapState(in, path, rock, soil, wood, scope);
+        if (mapping == Mapping.UNMAPPED) {
+            return new Conversion(in, true, true);
+        }
+        return new Conversion(mapping.state(), mapping.keepNbt(), false);
+    }
+
+    private static void recordUnmapped(ReplacementMetrics.Sink metrics, String vanillaPath, ReplacementScope scope) {
+        metrics.skipped(ReplacementMetrics.Skip.UNMAPPED);
+        // UTILITY_ONLY leaves most blocks alone on purpose; only FULL-scope gaps are worth reporting.
+        if (scope == ReplacementScope.FULL) {
+            ReplacementMetrics.unmapped(vanillaPath);
+        }
     }
 
     @Override
@@ -222,6 +552,23 @@ public final class TfcBlockReplacementProcessor extends StructureProcessor {
             StructureTemplate.StructureEntityInfo entityInfo,
             StructurePlaceSettings placementSettings,
             StructureTemplate template) {
+        long start = System.nanoTime();
+        StructureTemplate.StructureEntityInfo out = processEntityInfo(entityInfo);
+        long nanos = System.nanoTime() - start;
+        ReplacementMetrics.sink(templateIdOf(template), dimensionOf(resolveServerLevel(world)))
+                .entity(out != entityInfo, nanos);
+        @Nullable PlacementPhases phases = PlacementPhases.active();
+        if (phases != null) {
+            phases.add(PlacementPhases.Phase.ENTITIES, nanos);
+        }
+        return out;
+    }
+
+    /**
+     * Level-independent part of {@link #processEntity}: rewrites vanilla armor stand equipment to TFC items.
+     */
+    public static StructureTemplate.StructureEntityInfo processEntityInfo(
+            StructureTemplate.StructureEntityInfo entityInfo) {
         CompoundTag inNbt = entityInfo.nbt;
         if (inNbt == null || !isArmorStand(inNbt)) {
             return entityInfo;
@@ -305,6 +652,14 @@ public final class TfcBlockReplacementProcessor extends StructureProcessor {
         return null;
     }
 
+    private static @Nullable ResourceLocation dimensionOf(@Nullable ServerLevel level) {
+        return level != null ? level.dimension().location() : null;
+    }
+
+    private static @Nullable ResourceLocation templateIdOf(@Nullable StructureTemplate template) {
+        return template instanceof StructureTemplateIdAccess access ? access.tfcspells$getTemplateId() : null;
+    }
+
     private static String defaultRockFor(@Nullable ServerLevel level) {
         if (level == null) {
             return DEFAULT_ROCK_OVERWORLD;
@@ -1118,10 +1473,12 @@ public final class TfcBlockReplacementProcessor extends StructureProcessor {
             String currentPath,
             BlockPos offset,
             StructurePlaceSettings settings,
-            @Nullable StructureTemplate template) {
+            @Nullable StructureTemplate template,
+            ContextResolutionEvent event) {
         // Fast path: if the current block encodes a wood type, we can use it immediately.
         @Nullable String detected = detectVanillaWoodType(currentPath);
         if (detected != null) {
+            event.source = ContextResolutionEvent.SOURCE_BLOCK;
             return detected;
         }
 
@@ -1132,6 +1489,7 @@ public final class TfcBlockReplacementProcessor extends StructureProcessor {
                 StructureTemplate.Palette palette = settings.getRandomPalette(palettes, offset);
                 @Nullable String dominant = dominantVanillaWoodType(palette.blocks());
                 if (dominant != null) {
+                    event.source = ContextResolutionEvent.SOURCE_PALETTE;
                     return dominant;
                 }
             } catch (Exception ignored) {
@@ -1139,6 +1497,7 @@ public final class TfcBlockReplacementProcessor extends StructureProcessor {
             }
         }
 
+        event.source = ContextResolutionEvent.SOURCE_DEFAULT;
         return DEFAULT_WOOD;
     }
 
@@ -1220,33 +1579,47 @@ public final class TfcBlockReplacementProcessor extends StructureProcessor {
         };
     }
 
-    private static @Nullable String findRockNameBelow(LevelReader level, BlockPos start) {
+    private static @Nullable String findRockNameBelow(
+            BlockGetter level, BlockPos start, ReplacementMetrics.Sink metrics, ContextResolutionEvent event) {
         BlockPos.MutableBlockPos cursor = new BlockPos.MutableBlockPos(start.getX(), start.getY(), start.getZ());
         int minY = level.getMinBuildHeight();
 
-        for (int i = 0; i < 64 && cursor.getY() >= minY; i++) {
+        int i = 0;
+        for (; i < PROBE_DEPTH && cursor.getY() >= minY; i++) {
             BlockState state = level.getBlockState(cursor);
             @Nullable String rock = rockNameFromTfcBlock(state);
             if (rock != null) {
+                metrics.probe(i + 1);
+                event.probeDepth = i + 1;
+                event.source = ContextResolutionEvent.SOURCE_PROBE;
                 return rock;
             }
             cursor.move(0, -1, 0);
         }
+        metrics.probe(i);
+        event.probeDepth = i;
         return null;
     }
 
-    private static @Nullable String findSoilNameBelow(LevelReader level, BlockPos start) {
+    private static @Nullable String findSoilNameBelow(
+            BlockGetter level, BlockPos start, ReplacementMetrics.Sink metrics, ContextResolutionEvent event) {
         BlockPos.MutableBlockPos cursor = new BlockPos.MutableBlockPos(start.getX(), start.getY(), start.getZ());
         int minY = level.getMinBuildHeight();
 
-        for (int i = 0; i < 64 && cursor.getY() >= minY; i++) {
+        int i = 0;
+        for (; i < PROBE_DEPTH && cursor.getY() >= minY; i++) {
             BlockState state = level.getBlockState(cursor);
             @Nullable String soil = soilNameFromTfcBlock(state);
             if (soil != null) {
+                metrics.probe(i + 1);
+                event.probeDepth = i + 1;
+                event.source = ContextResolutionEvent.SOURCE_PROBE;
                 return soil;
             }
             cursor.move(0, -1, 0);
         }
+        metrics.probe(i);
+        event.probeDepth = i;
         return null;
     }
 